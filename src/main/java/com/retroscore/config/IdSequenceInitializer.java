@@ -0,0 +1,54 @@
+package com.retroscore.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Moves the id sequences past the ids already in their tables.
+ * Tables created before the switch from identity columns to pooled sequences hold ids
+ * the freshly created sequences know nothing about; without this the first batched
+ * insert would collide with existing rows.
+ */
+@Component
+public class IdSequenceInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdSequenceInitializer.class);
+
+    // must match allocationSize on the entities' @SequenceGenerator
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "matches_seq", "matches",
+            "user_games_seq", "user_games",
+            "users_seq", "users",
+            "seasons_seq", "seasons",
+            "teams_seq", "teams"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // the entity manager factory dependency makes sure the schema update has created the sequences
+    public IdSequenceInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignSequences() {
+        SEQUENCES.forEach((sequence, table) -> {
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            Long lastValue = jdbcTemplate.queryForObject("SELECT last_value FROM " + sequence, Long.class);
+            // a whole allocation block above the highest id is safe however the optimizer reads the value
+            long safeValue = maxId + ALLOCATION_SIZE;
+            if (maxId > 0 && lastValue < safeValue) {
+                jdbcTemplate.queryForObject("SELECT setval('" + sequence + "', ?)", Long.class, safeValue);
+                logger.info("Moved sequence {} from {} to {} (max id in {} is {})", sequence, lastValue, safeValue, table, maxId);
+            }
+        });
+    }
+}
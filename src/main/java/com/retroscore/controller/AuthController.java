@@ -3,10 +3,14 @@ package com.retroscore.controller;
 import com.retroscore.dto.AuthResponse;
 import com.retroscore.dto.GoogleTokenRequest;
 import com.retroscore.dto.GoogleUserInfo;
+import com.retroscore.dto.LogoutRequest;
 import com.retroscore.entity.User;
+import com.retroscore.exception.GoogleAuthUnavailableException;
+import com.retroscore.security.VerifiedToken;
 import com.retroscore.service.AuthService;
 import com.retroscore.service.GoogleTokenValidatorService;
 import com.retroscore.service.JWTService;
+import com.retroscore.service.TokenRevocationService;
 import com.retroscore.service.UserService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
@@ -15,6 +19,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Objects;
+import java.util.Optional;
+
 @RestController
 @RequestMapping("/auth")
 @CrossOrigin(origins = "*") // Allow mobile apps to call these endpoints
@@ -26,16 +33,19 @@ public class AuthController {
     private final GoogleTokenValidatorService googleTokenValidator;
     private final JWTService jwtService;
     private final UserService userService;
+    private final TokenRevocationService tokenRevocationService;
 
     @Autowired
     public AuthController(AuthService authService,
                           GoogleTokenValidatorService googleTokenValidator,
                           JWTService jwtService,
-                          UserService userService) {
+                          UserService userService,
+                          TokenRevocationService tokenRevocationService) {
         this.authService = authService;
         this.googleTokenValidator = googleTokenValidator;
         this.jwtService = jwtService;
         this.userService = userService;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     /**
@@ -49,8 +59,8 @@ public class AuthController {
         logger.info("Mobile Google authentication request received");
 
         try {
-            // Validate Google token with Google's servers
-            GoogleUserInfo googleUser = googleTokenValidator.validateToken(request.getGoogleToken());
+            // ID tokens are verified locally against Google's cached keys, access tokens with Google's servers
+            GoogleUserInfo googleUser = googleTokenValidator.validate(request.getGoogleToken());
 
             if (googleUser == null) {
                 logger.warn("Invalid Google token provided");
@@ -69,6 +79,9 @@ public class AuthController {
             // Return success response with JWT
             return ResponseEntity.ok(new AuthResponse(jwtToken, "Authentication successful", true, user));
 
+        } catch (GoogleAuthUnavailableException e) {
+            return ResponseEntity.status(503)
+                    .body(new AuthResponse(null, e.getMessage(), false));
         } catch (Exception e) {
             logger.error("Error during mobile Google authentication", e);
             return ResponseEntity.status(500)
@@ -168,15 +181,26 @@ public class AuthController {
     }
 
     /**
-     * Logout endpoint - invalidate token (optional, since JWT is stateless)
+     * Logout endpoint - revokes the access token and, when the body carries it, the refresh token
+     * until each would have expired
      */
     @PostMapping("/logout")
-    public ResponseEntity<AuthResponse> logout(@RequestHeader("Authorization") String authHeader) {
-
-        // Since JWT is stateless, logout is mainly client-side (delete token)
-        // But you could maintain a blacklist of tokens if needed
+    public ResponseEntity<AuthResponse> logout(@RequestHeader("Authorization") String authHeader,
+                                               @RequestBody(required = false) LogoutRequest request) {
+
+        // an invalid or already revoked token has nothing left to revoke
+        String token = jwtService.extractTokenFromHeader(authHeader);
+        Optional<VerifiedToken> accessToken = token == null ? Optional.empty() : jwtService.verifyIfValid(token);
+        accessToken.ifPresent(verified -> tokenRevocationService.revoke(verified.id(), verified.expiration()));
+
+        // revoked even when the access token already expired, but never another user's
+        if (request != null && request.getRefreshToken() != null) {
+            jwtService.verifyIfValid(request.getRefreshToken())
+                    .filter(refresh -> accessToken.map(access -> Objects.equals(access.subject(), refresh.subject())).orElse(true))
+                    .ifPresent(refresh -> tokenRevocationService.revoke(refresh.id(), refresh.expiration()));
+        }
 
         logger.info("User logout requested");
         return ResponseEntity.ok(new AuthResponse(null, "Logged out successfully", true));
     }
-}
\ No newline at end of file
+}
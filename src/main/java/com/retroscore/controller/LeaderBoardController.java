@@ -1,13 +1,27 @@
 package com.retroscore.controller;
 
+import com.retroscore.dto.LeaderBoardCursorPage;
+import com.retroscore.dto.LeaderBoardEntry;
 import com.retroscore.dto.LeaderBoardResponse;
+import com.retroscore.dto.LeaderBoardWindow;
+import com.retroscore.dto.StatsBreakdownDto;
 import com.retroscore.dto.UserStatsWithRank;
 import com.retroscore.security.UserPrincipal;
+import com.retroscore.service.LeaderBoardExportService;
 import com.retroscore.service.LeaderBoardService;
+import com.retroscore.service.LeaderBoardStreamService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
 
 @RestController
 @CrossOrigin(origins = "*")
@@ -16,15 +30,44 @@ public class LeaderBoardController {
     @Autowired
     private LeaderBoardService leaderBoardService;
 
+    @Autowired
+    private LeaderBoardExportService leaderBoardExportService;
+
+    @Autowired
+    private LeaderBoardStreamService leaderBoardStreamService;
+
     @GetMapping("/public")
     public ResponseEntity<LeaderBoardResponse> getLeaderBoard(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size){
+            @RequestParam(defaultValue = "20") int size,
+            WebRequest request){
         LeaderBoardResponse response = leaderBoardService.getLeaderBoard(page,size);
-        return ResponseEntity.ok(response);
+        if (response.getSnapshotTag() == null) {
+            return ResponseEntity.ok(response);
+        }
+
+        // snapshot pages revalidate with a hash of their content, unchanged ones cost a 304 on any instance
+        String eTag = "\"lb-" + response.getSnapshotTag() + "\"";
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache())
+                .body(response);
 
     }
 
+    // keyset-paged variant of /public, follow nextCursor for the next page
+    @GetMapping("/public/cursor")
+    public ResponseEntity<LeaderBoardCursorPage> getLeaderBoardPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal){
+        LeaderBoardCursorPage response = leaderBoardService.getLeaderBoardPage(cursor, size, includeTotal);
+        return ResponseEntity.ok(response);
+    }
+
 
     @GetMapping("/personal")
     public ResponseEntity<UserStatsWithRank> getUserStatsWithRank(@AuthenticationPrincipal UserPrincipal principal){
@@ -34,4 +77,86 @@ public class LeaderBoardController {
         return ResponseEntity.ok(userStats);
     }
 
+    @GetMapping("/personal/breakdown")
+    public ResponseEntity<StatsBreakdownDto> getUserStatsBreakdown(@AuthenticationPrincipal UserPrincipal principal){
+        Long userId = principal.getUserId();
+        return ResponseEntity.ok(leaderBoardService.getUserStatsBreakdown(userId));
+    }
+
+    @GetMapping("/around-me")
+    public ResponseEntity<LeaderBoardWindow> getLeaderBoardAroundMe(@AuthenticationPrincipal UserPrincipal principal,
+                                                                    @RequestParam(defaultValue = "5") int radius){
+        Long userId = principal.getUserId();
+        return ResponseEntity.ok(leaderBoardService.getLeaderBoardAroundUser(userId, radius));
+    }
+
+    // period is daily, weekly or monthly
+    @GetMapping("/period/{period}")
+    public ResponseEntity<LeaderBoardResponse> getPeriodLeaderBoard(
+            @PathVariable String period,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size){
+        return ResponseEntity.ok(leaderBoardService.getPeriodLeaderBoard(period, page, size));
+    }
+
+    @GetMapping("/period/{period}/personal")
+    public ResponseEntity<LeaderBoardEntry> getPeriodStanding(@AuthenticationPrincipal UserPrincipal principal,
+                                                              @PathVariable String period){
+        Long userId = principal.getUserId();
+        return ResponseEntity.ok(leaderBoardService.getPeriodStanding(userId, period));
+    }
+
+    @GetMapping("/season/{seasonId}")
+    public ResponseEntity<LeaderBoardResponse> getSeasonLeaderBoard(
+            @PathVariable Long seasonId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size){
+        return ResponseEntity.ok(leaderBoardService.getSeasonLeaderBoard(seasonId, page, size));
+    }
+
+    @GetMapping("/season/{seasonId}/personal")
+    public ResponseEntity<LeaderBoardEntry> getSeasonStanding(@AuthenticationPrincipal UserPrincipal principal,
+                                                              @PathVariable Long seasonId){
+        Long userId = principal.getUserId();
+        return ResponseEntity.ok(leaderBoardService.getSeasonStanding(userId, seasonId));
+    }
+
+    @GetMapping("/club/{clubId}")
+    public ResponseEntity<LeaderBoardResponse> getClubLeaderBoard(
+            @PathVariable Long clubId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size){
+        return ResponseEntity.ok(leaderBoardService.getClubLeaderBoard(clubId, page, size));
+    }
+
+    @GetMapping("/club/{clubId}/personal")
+    public ResponseEntity<LeaderBoardEntry> getClubStanding(@AuthenticationPrincipal UserPrincipal principal,
+                                                            @PathVariable Long clubId){
+        Long userId = principal.getUserId();
+        return ResponseEntity.ok(leaderBoardService.getClubStanding(userId, clubId));
+    }
+
+    // whole ranking in one streamed response, format is ndjson or csv
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportLeaderBoard(@RequestParam(defaultValue = "ndjson") String format){
+        LeaderBoardExportService.Format exportFormat = LeaderBoardExportService.Format.parse(format);
+        MediaType contentType = exportFormat == LeaderBoardExportService.Format.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType("application", "x-ndjson");
+        StreamingResponseBody body = out -> leaderBoardExportService.export(exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"leaderboard." + exportFormat.name().toLowerCase() + "\"")
+                .body(body);
+    }
+
+    // live "rank" events for the caller and, unless top=false, "top" events for the head of the public board
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLeaderBoard(@AuthenticationPrincipal UserPrincipal principal,
+                                        @RequestParam(defaultValue = "true") boolean top){
+        Long userId = principal.getUserId();
+        return leaderBoardStreamService.subscribe(userId, top);
+    }
+
 }
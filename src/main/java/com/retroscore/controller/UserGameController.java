@@ -9,13 +9,20 @@ import com.retroscore.security.UserPrincipal;
 import com.retroscore.service.AuthService;
 import com.retroscore.service.DataImportService;
 import com.retroscore.service.GameService;
+import com.retroscore.service.GuessWriteBehindService;
+import com.retroscore.service.MatchResponseCache;
+import com.retroscore.util.AcceptEncoding;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @CrossOrigin(origins = "*")
 @RestController
 @RequiredArgsConstructor
@@ -23,24 +30,50 @@ import org.springframework.web.bind.annotation.*;
 public class UserGameController {
 
     private final GameService gameService;
+    private final GuessWriteBehindService guessWriteBehindService;
     private static final Logger log = LoggerFactory.getLogger(UserGameController.class);
 
     @GetMapping("game/random-match")
-    public ResponseEntity<MatchDto> getRandomMatch(@AuthenticationPrincipal UserPrincipal principal,
-                                                   @RequestParam(required = false) Long teamId,
-                                                   @RequestParam(required = false) Long seasonId,
-                                                   @RequestParam(required = false, defaultValue="discovery") String mode){
+    public ResponseEntity<byte[]> getRandomMatch(@AuthenticationPrincipal UserPrincipal principal,
+                                                 @RequestParam(required = false) Long teamId,
+                                                 @RequestParam(required = false) Long seasonId,
+                                                 @RequestParam(required = false, defaultValue="discovery") String mode,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding){
         log.info("Received request for random match by user {}", principal.getUserId());
         Long userId = principal.getUserId();
-        MatchDto match = gameService.getRandomMatch(userId,teamId,seasonId,mode);
-        return ResponseEntity.ok().body(match);
+        boolean acceptsGzip = AcceptEncoding.acceptsGzip(acceptEncoding);
+        MatchResponseCache.ResponseBody match = gameService.getRandomMatch(userId,teamId,seasonId,mode,acceptsGzip);
+
+        // the body is pre-rendered JSON, possibly already gzipped
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (match.gzipped()) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(match.content());
+    }
+
+    @GetMapping("game/random-matches")
+    public ResponseEntity<List<MatchDto>> getRandomMatches(@AuthenticationPrincipal UserPrincipal principal,
+                                                           @RequestParam(required = false) Long teamId,
+                                                           @RequestParam(required = false) Long seasonId,
+                                                           @RequestParam(required = false, defaultValue="discovery") String mode,
+                                                           @RequestParam(defaultValue = "10") int count){
+        log.info("Received request for {} random matches by user {}", count, principal.getUserId());
+        Long userId = principal.getUserId();
+        List<MatchDto> matches = gameService.getRandomMatches(userId, teamId, seasonId, mode, count);
+        return ResponseEntity.ok().body(matches);
     }
 
     @PostMapping("game/guess")
     public ResponseEntity<UserGameResponse> submitGuess(@AuthenticationPrincipal UserPrincipal principal,
                                                         @RequestBody UserGuessDto userGuess) {
         Long userId = principal.getUserId();
-        UserGameResponse response = gameService.submitGuess(userId, userGuess);
+        // write-behind mode answers from memory without opening a transaction for the request
+        UserGameResponse response = guessWriteBehindService.isEnabled()
+                ? guessWriteBehindService.submitGuess(userId, userGuess)
+                : gameService.submitGuess(userId, userGuess);
         return ResponseEntity.ok(response);
     }
 }
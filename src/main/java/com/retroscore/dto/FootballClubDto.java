@@ -1,8 +1,12 @@
 package com.retroscore.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class FootballClubDto {
     private Long clubId;
     private String name;
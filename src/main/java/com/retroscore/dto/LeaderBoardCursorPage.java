@@ -0,0 +1,17 @@
+package com.retroscore.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class LeaderBoardCursorPage {
+    private List<LeaderBoardEntry> entries;
+    // pass back as ?cursor= for the next page, null on the last page
+    private String nextCursor;
+    private int pageSize;
+    // only filled when requested with includeTotal=true
+    private Long totalUsers;
+}
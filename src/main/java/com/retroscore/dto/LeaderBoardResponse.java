@@ -12,4 +12,6 @@ public class LeaderBoardResponse {
     private long totalUsers;
     private int currentPage;
     private int pageSize;
+    // set when served from a leaderboard snapshot, a hash of the page content used as its ETag
+    private String snapshotTag;
 }
@@ -0,0 +1,14 @@
+package com.retroscore.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class LeaderBoardWindow {
+    private List<LeaderBoardEntry> entries;
+    private Long userRank;
+    private long totalUsers;
+}
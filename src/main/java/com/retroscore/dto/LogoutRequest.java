@@ -0,0 +1,23 @@
+package com.retroscore.dto;
+
+public class LogoutRequest {
+
+    // Optional: the refresh token issued with the access token, revoked along with it
+    private String refreshToken;
+
+    // Constructors
+    public LogoutRequest() {}
+
+    public LogoutRequest(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
+    // Getters and setters
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+}
@@ -2,12 +2,14 @@ package com.retroscore.dto;
 
 import com.retroscore.entity.Season;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 
 @Data
+@NoArgsConstructor
 public class MatchDto {
 
     private Long matchId;
@@ -27,6 +29,33 @@ public class MatchDto {
     private Integer awayRedCards;
     private PlayHistoryDto playHistoryDto;
 
+    /**
+     * Flat constructor for the JPQL constructor expression in MatchRepository,
+     * so a match and both clubs are read in one joined select.
+     */
+    public MatchDto(Long matchId, String seasonName,
+                    Long homeTeamId, String homeTeamName, String homeTeamLogoUrl, String homeTeamStadiumName, Boolean homeTeamActive,
+                    Long awayTeamId, String awayTeamName, String awayTeamLogoUrl, String awayTeamStadiumName, Boolean awayTeamActive,
+                    Integer homeScore, Integer awayScore, LocalDate matchDate,
+                    Integer homeCorners, Integer awayCorners,
+                    Integer homeYellowCards, Integer awayYellowCards,
+                    Integer homeRedCards, Integer awayRedCards) {
+        this.matchId = matchId;
+        this.matchTitle = homeTeamName + " vs " + awayTeamName;
+        this.seasonName = seasonName;
+        this.homeTeam = new FootballClubDto(homeTeamId, homeTeamName, homeTeamLogoUrl, homeTeamStadiumName, homeTeamActive);
+        this.awayTeam = new FootballClubDto(awayTeamId, awayTeamName, awayTeamLogoUrl, awayTeamStadiumName, awayTeamActive);
+        this.stadiumName = homeTeamStadiumName;
+        this.homeScore = homeScore;
+        this.awayScore = awayScore;
+        this.matchDate = matchDate;
+        this.homeCorners = homeCorners;
+        this.awayCorners = awayCorners;
+        this.homeYellowCards = homeYellowCards;
+        this.awayYellowCards = awayYellowCards;
+        this.homeRedCards = homeRedCards;
+        this.awayRedCards = awayRedCards;
+    }
 
 }
 
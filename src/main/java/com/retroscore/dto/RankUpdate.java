@@ -0,0 +1,14 @@
+package com.retroscore.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class RankUpdate {
+    private Long userId;
+    private Integer totalPoints;
+    private Long currentRank;
+    private Double percentile;
+    private long totalUsers;
+}
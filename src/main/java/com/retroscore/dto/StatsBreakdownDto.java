@@ -0,0 +1,33 @@
+package com.retroscore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatsBreakdownDto {
+    private Long userId;
+    private List<Bucket> seasons;
+    private List<Bucket> teams;
+    private Bucket lastThirtyDays;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bucket {
+        // season or club id, null for the last 30 days
+        private Long id;
+        private String name;
+        private Integer gamesPlayed;
+        private Integer exactScorePredictions;
+        private Integer correctResultPredictions;
+        private Integer totalPoints;
+    }
+}
@@ -14,5 +14,7 @@ public class UserStatsWithRank {
     private Integer exactScorePredictions;
     private Integer correctResultPredictions;
     private Long currentRank;
+    // "top X%" of all users, 1.0 is the top 1%
+    private Double percentile;
     private String profilePictureURL;
 }
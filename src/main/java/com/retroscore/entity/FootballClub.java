@@ -8,7 +8,8 @@ import lombok.Data;
 @Table(name = "Teams")
 public class FootballClub {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "teams_id_gen")
+    @SequenceGenerator(name = "teams_id_gen", sequenceName = "teams_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -0,0 +1,35 @@
+package com.retroscore.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "revoked_tokens",
+        // expired revocations are purged by expiry, and instances poll for new ones by revoked_at
+        indexes = {@Index(name = "idx_revoked_tokens_expires_at", columnList = "expires_at"),
+                @Index(name = "idx_revoked_tokens_revoked_at", columnList = "revoked_at")})
+public class RevokedToken {
+
+    // the token's jti claim
+    @Id
+    @Column(name = "token_id", length = 64)
+    private String tokenId;
+
+    // once the token itself has expired the revocation is no longer needed
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "revoked_at", nullable = false)
+    private LocalDateTime revokedAt;
+
+    public RevokedToken(String tokenId, LocalDateTime expiresAt, LocalDateTime revokedAt) {
+        this.tokenId = tokenId;
+        this.expiresAt = expiresAt;
+        this.revokedAt = revokedAt;
+    }
+}
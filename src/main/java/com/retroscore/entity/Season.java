@@ -10,7 +10,8 @@ import java.time.LocalDate;
 @Table(name = "seasons")
 public class Season {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seasons_id_gen")
+    @SequenceGenerator(name = "seasons_id_gen", sequenceName = "seasons_seq", allocationSize = 50)
     private Long Id;
 
     @Column(name = "season_name")
@@ -11,10 +11,13 @@ import java.util.Collection;
 
 @Entity
 @Data
-@Table(name = "users")
+@Table(name = "users",
+        // matches the public leaderboard order so keyset pages seek straight to their first row
+        indexes = @Index(name = "idx_users_leaderboard", columnList = "total_points DESC, created_at ASC, id ASC"))
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_gen")
+    @SequenceGenerator(name = "users_id_gen", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -50,16 +53,18 @@ public class User {
     @Column(name = "is_email_verified")
     private boolean isEmailVerified = false;
 
-    @Column(name = "games_played", nullable = false)
+    // the game counters are written only by UserRepository.incrementGameStats, never by saving the entity,
+    // so a profile, settings or login save holding stale counters cannot undo a concurrent increment
+    @Column(name = "games_played", nullable = false, updatable = false)
     private Integer gamesPlayed = 0;
 
-    @Column(name = "games_won", nullable = false)
+    @Column(name = "games_won", nullable = false, updatable = false)
     private Integer gamesWon = 0;
 
-    @Column(name = "games_lost", nullable = false)
+    @Column(name = "games_lost", nullable = false, updatable = false)
     private  Integer gamesLost = 0;
 
-    @Column(name = "games_draw", nullable = false)
+    @Column(name = "games_draw", nullable = false, updatable = false)
     private  Integer gamesDrawn = 0;
 
     public  Double getWinPercentage(){
@@ -98,13 +103,13 @@ public class User {
     @Column(name = "time_limit")
     private TimerDurations timeLimit = TimerDurations.getDefault();
 
-    @Column(name = "total_points", nullable = false)
+    @Column(name = "total_points", nullable = false, updatable = false)
     private Integer totalPoints = 0;
 
-    @Column(name = "exact_score_predictions", nullable = false)
+    @Column(name = "exact_score_predictions", nullable = false, updatable = false)
     private Integer exactScorePredictions = 0;
 
-    @Column(name = "correct_result_predictions", nullable = false)
+    @Column(name = "correct_result_predictions", nullable = false, updatable = false)
     private Integer correctResultPredictions = 0;
 
     /**
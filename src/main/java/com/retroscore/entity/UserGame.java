@@ -3,21 +3,34 @@ package com.retroscore.entity;
 import com.retroscore.enums.GameResult;
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "user_games")
+@Table(name = "user_games",
+        uniqueConstraints = @UniqueConstraint(name = UserGame.USER_MATCH_CONSTRAINT, columnNames = {"user_id", "match_id"}),
+        // period leaderboards reload the current month's games at startup
+        indexes = @Index(name = "idx_user_games_played_at", columnList = "played_at"))
 public class UserGame {
+    // a user can record each match only once
+    public static final String USER_MATCH_CONSTRAINT = "uk_user_games_user_match";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_games_id_gen")
+    @SequenceGenerator(name = "user_games_id_gen", sequenceName = "user_games_seq", allocationSize = 50)
     private Long id;
 
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "match_id",nullable = false)
     private Match match;
@@ -0,0 +1,33 @@
+package com.retroscore.enums;
+
+import com.retroscore.exception.InvalidLeaderBoardPeriodException;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+public enum LeaderBoardPeriod {
+
+    DAILY,
+    WEEKLY,
+    MONTHLY;
+
+    // case-insensitive name from a request path, unknown names are a bad request rather than a server error
+    public static LeaderBoardPeriod parse(String period) {
+        for (LeaderBoardPeriod value : values()) {
+            if (value.name().equalsIgnoreCase(period)) {
+                return value;
+            }
+        }
+        throw new InvalidLeaderBoardPeriodException(period);
+    }
+
+    // first day of the period that contains the given day, weeks start on Monday
+    public LocalDate startOf(LocalDate day) {
+        return switch (this) {
+            case DAILY -> day;
+            case WEEKLY -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTHLY -> day.withDayOfMonth(1);
+        };
+    }
+}
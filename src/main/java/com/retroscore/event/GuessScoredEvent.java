@@ -0,0 +1,18 @@
+package com.retroscore.event;
+
+import com.retroscore.enums.GameResult;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published once a scored guess has been written, by both the synchronous and the
+ * write-behind guess paths. Carries what in-memory leaderboards need to apply the
+ * guess without reading the user back.
+ */
+public record GuessScoredEvent(Long userId, Long matchId, Long seasonId, Long homeTeamId, Long awayTeamId,
+                               GameResult gameResult, LocalDateTime playedAt) {
+
+    public int points() {
+        return gameResult.getPoints();
+    }
+}
@@ -0,0 +1,8 @@
+package com.retroscore.event;
+
+/**
+ * Published by the data import once a season's matches have been saved.
+ * Listeners holding derived match data (catalog, caches) rebuild from it.
+ */
+public record SeasonImportedEvent(Long seasonId, String seasonName) {
+}
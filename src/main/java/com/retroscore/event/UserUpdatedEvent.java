@@ -0,0 +1,8 @@
+package com.retroscore.event;
+
+/**
+ * Published whenever a user's profile or settings are saved.
+ * Listeners caching user data (the identity cache) drop their entry once the change has committed.
+ */
+public record UserUpdatedEvent(Long userId) {
+}
@@ -33,6 +33,30 @@ public class ExceptionAndErrorController {
         return ex.getMessage();
     }
 
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String handleGuessQueueFull(GuessQueueFullException ex){
+        return ex.getMessage();
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidCursor(InvalidCursorException ex){
+        return ex.getMessage();
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidLeaderBoardPeriod(InvalidLeaderBoardPeriodException ex){
+        return ex.getMessage();
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidExportFormat(InvalidExportFormatException ex){
+        return ex.getMessage();
+    }
+
     @ExceptionHandler(NoMatchesFoundException.class)
     public ResponseEntity<String> handleMatchNotFoundWithFilters(NoMatchesFoundException ex) {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
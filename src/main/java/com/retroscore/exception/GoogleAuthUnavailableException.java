@@ -0,0 +1,11 @@
+package com.retroscore.exception;
+
+public class GoogleAuthUnavailableException extends RuntimeException {
+    public GoogleAuthUnavailableException(){
+        super("Too many Google sign-ins are being checked right now, try again shortly");
+    }
+
+    public GoogleAuthUnavailableException(String message, Throwable cause){
+        super(message, cause);
+    }
+}
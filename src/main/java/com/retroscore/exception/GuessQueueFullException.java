@@ -0,0 +1,7 @@
+package com.retroscore.exception;
+
+public class GuessQueueFullException extends RuntimeException {
+    public GuessQueueFullException(){
+        super("Too many guesses are being recorded right now, try again shortly");
+    }
+}
@@ -0,0 +1,7 @@
+package com.retroscore.exception;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String cursor){
+        super("Invalid leaderboard cursor " + cursor);
+    }
+}
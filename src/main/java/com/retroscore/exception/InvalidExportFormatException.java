@@ -0,0 +1,7 @@
+package com.retroscore.exception;
+
+public class InvalidExportFormatException extends RuntimeException {
+    public InvalidExportFormatException(String format){
+        super("Invalid leaderboard export format " + format + ", expected ndjson or csv");
+    }
+}
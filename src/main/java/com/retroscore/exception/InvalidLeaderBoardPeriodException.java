@@ -0,0 +1,7 @@
+package com.retroscore.exception;
+
+public class InvalidLeaderBoardPeriodException extends RuntimeException {
+    public InvalidLeaderBoardPeriodException(String period){
+        super("Invalid leaderboard period " + period + ", expected daily, weekly or monthly");
+    }
+}
@@ -0,0 +1,16 @@
+package com.retroscore.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Slim projection of a user for leaderboard pages, only the columns an entry needs.
+ */
+public interface LeaderBoardRow {
+    Long getId();
+    String getUsername();
+    Integer getTotalPoints();
+    Integer getGamesPlayed();
+    Integer getGamesWon();
+    LocalDateTime getCreatedAt();
+    String getProfilePicture();
+}
@@ -1,17 +1,62 @@
 package com.retroscore.repository;
 
+import com.retroscore.dto.MatchDto;
 import com.retroscore.entity.Match;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface MatchRepository extends JpaRepository<Match,Long> {
 
+    // builds MatchDto with both clubs in one joined select instead of three lazy loads per match
+    String MATCH_DTO_SELECT = "SELECT new com.retroscore.dto.MatchDto(m.id, s.seasonName, " +
+            "h.id, h.name, h.logoUrl, h.stadiumName, h.isActive, " +
+            "a.id, a.name, a.logoUrl, a.stadiumName, a.isActive, " +
+            "m.homeScore, m.awayScore, m.matchDate, m.homeCorners, m.awayCorners, " +
+            "m.homeYellowCards, m.awayYellowCards, m.homeRedCards, m.awayRedCards) " +
+            "FROM Match m JOIN m.season s JOIN m.homeTeam h JOIN m.awayTeam a ";
+
+    // optional team/season filters plus an anti-join on the games a user already played, every parameter may be null
+    String SAMPLE_CANDIDATES = "FROM matches m " +
+            "WHERE (CAST(:teamId AS BIGINT) IS NULL OR m.home_team_id = :teamId OR m.away_team_id = :teamId) " +
+            "AND (CAST(:seasonId AS BIGINT) IS NULL OR m.season_id = :seasonId) " +
+            "AND (CAST(:excludeUserId AS BIGINT) IS NULL OR NOT EXISTS " +
+            "(SELECT 1 FROM user_games ug WHERE ug.match_id = m.id AND ug.user_id = :excludeUserId)) ";
+
     @Query("SELECT m FROM Match m WHERE m.homeTeam.id = :teamId OR m.awayTeam.id= :teamId")
     List<Match> findByTeamId(@Param("teamId") Long teamId);
     List<Match> findBySeasonId(Long seasonId);
     @Query("SELECT m FROM Match m WHERE (m.homeTeam.id = :teamId OR m.awayTeam.id= :teamId) AND m.season.id = :seasonId")
     List<Match> findByTeamIdAndSeasonId(Long teamId, Long seasonId);
+
+    // flat rows for the in-memory match catalog: id, season, home team, away team, home score, away score
+    @Query("SELECT m.id, m.season.id, m.homeTeam.id, m.awayTeam.id, m.homeScore, m.awayScore FROM Match m ORDER BY m.id")
+    List<Object[]> findCatalogRows();
+
+    @Query(MATCH_DTO_SELECT + "WHERE m.id = :matchId")
+    Optional<MatchDto> findMatchDtoById(@Param("matchId") Long matchId);
+
+    @Query(MATCH_DTO_SELECT + "WHERE m.id IN :matchIds")
+    List<MatchDto> findMatchDtosByIdIn(@Param("matchIds") Collection<Long> matchIds);
+
+    // match with both clubs fetched, for building match titles when scoring a guess
+    @EntityGraph(attributePaths = {"homeTeam", "awayTeam"})
+    Optional<Match> findWithTeamsById(Long id);
+
+    // count-then-offset sampling: the database returns a single row instead of the whole candidate list
+    @Query(value = "SELECT COUNT(*) " + SAMPLE_CANDIDATES, nativeQuery = true)
+    long countSampleCandidates(@Param("teamId") Long teamId,
+                               @Param("seasonId") Long seasonId,
+                               @Param("excludeUserId") Long excludeUserId);
+
+    @Query(value = "SELECT m.id " + SAMPLE_CANDIDATES + "ORDER BY m.id OFFSET :offset LIMIT 1", nativeQuery = true)
+    Optional<Long> findSampleCandidateIdAtOffset(@Param("teamId") Long teamId,
+                                                @Param("seasonId") Long seasonId,
+                                                @Param("excludeUserId") Long excludeUserId,
+                                                @Param("offset") long offset);
 }
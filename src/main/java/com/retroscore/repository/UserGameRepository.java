@@ -1,8 +1,13 @@
 package com.retroscore.repository;
 
 import com.retroscore.entity.UserGame;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,9 +16,63 @@ public interface UserGameRepository extends JpaRepository<UserGame, Long> {
     //check if user played a game
     Optional<UserGame> findByUserIdAndMatchId(Long userId, Long matchId);
 
-    //find userGame by id and userid
+    // previous plays of a user for a batch of matches, one IN query
+    List<UserGame> findByUserIdAndMatchIdIn(Long userId, Collection<Long> matchIds);
+
+    //find userGame by id and userid, with the match and its clubs for the result title
+    @EntityGraph(attributePaths = {"match", "match.homeTeam", "match.awayTeam"})
     Optional<UserGame> findByIdAndUserId(Long id, Long userId);
 
     List<UserGame> findByUserId(Long userId);
 
+    String BREAKDOWN_COUNTS = "COUNT(*) AS games, " +
+            "SUM(CASE WHEN ug.is_correct_score THEN 1 ELSE 0 END) AS exact_scores, " +
+            "SUM(CASE WHEN ug.is_correct_result AND NOT COALESCE(ug.is_correct_score, FALSE) THEN 1 ELSE 0 END) AS correct_results ";
+
+    // per-season, per-team and recent totals of a user in one round trip, rows are
+    // [scope, scope id, scope name, games, exact scores, correct results (not exact)]
+    @Query(value = "SELECT 'SEASON' AS scope, s.id AS scope_id, s.season_name AS scope_name, " + BREAKDOWN_COUNTS +
+            "FROM user_games ug JOIN matches m ON m.id = ug.match_id JOIN seasons s ON s.id = m.season_id " +
+            "WHERE ug.user_id = :userId GROUP BY s.id, s.season_name " +
+            "UNION ALL " +
+            "SELECT 'TEAM', t.id, t.name, " + BREAKDOWN_COUNTS +
+            "FROM user_games ug JOIN matches m ON m.id = ug.match_id " +
+            "JOIN teams t ON t.id = m.home_team_id OR t.id = m.away_team_id " +
+            "WHERE ug.user_id = :userId GROUP BY t.id, t.name " +
+            "UNION ALL " +
+            "SELECT 'RECENT', NULL, NULL, " + BREAKDOWN_COUNTS +
+            "FROM user_games ug WHERE ug.user_id = :userId AND ug.played_at >= :since",
+            nativeQuery = true)
+    List<Object[]> findStatsBreakdownRows(@Param("userId") Long userId, @Param("since") LocalDateTime since);
+
+    // per user and day totals since a date,
+    // rows are [user id, day, games, exact scores, correct results (not exact), user created at]
+    String DAILY_TOTALS_SELECT = "SELECT ug.user_id, CAST(ug.played_at AS DATE) AS played_on, " + BREAKDOWN_COUNTS + ", u.created_at " +
+            "FROM user_games ug JOIN users u ON u.id = ug.user_id WHERE ug.played_at >= :since ";
+    String DAILY_TOTALS_GROUP = "GROUP BY ug.user_id, CAST(ug.played_at AS DATE), u.created_at";
+
+    @Query(value = DAILY_TOTALS_SELECT + DAILY_TOTALS_GROUP, nativeQuery = true)
+    List<Object[]> findDailyTotalsSince(@Param("since") LocalDateTime since);
+
+    @Query(value = DAILY_TOTALS_SELECT + "AND ug.user_id IN (:userIds) " + DAILY_TOTALS_GROUP, nativeQuery = true)
+    List<Object[]> findDailyTotalsSinceByUserIdIn(@Param("since") LocalDateTime since, @Param("userIds") Collection<Long> userIds);
+
+    // totals of every user per season and per club, rows are
+    // [scope, season or club id, user id, games, exact scores, correct results (not exact), user created at]
+    String SEASON_TOTALS_SELECT = "SELECT 'SEASON' AS scope, m.season_id AS scope_id, ug.user_id, " + BREAKDOWN_COUNTS + ", u.created_at " +
+            "FROM user_games ug JOIN matches m ON m.id = ug.match_id JOIN users u ON u.id = ug.user_id ";
+    String SEASON_TOTALS_GROUP = "GROUP BY m.season_id, ug.user_id, u.created_at ";
+    String CLUB_TOTALS_SELECT = "SELECT 'TEAM', t.id, ug.user_id, " + BREAKDOWN_COUNTS + ", u.created_at " +
+            "FROM user_games ug JOIN matches m ON m.id = ug.match_id JOIN users u ON u.id = ug.user_id " +
+            "JOIN teams t ON t.id = m.home_team_id OR t.id = m.away_team_id ";
+    String CLUB_TOTALS_GROUP = "GROUP BY t.id, ug.user_id, u.created_at";
+
+    @Query(value = SEASON_TOTALS_SELECT + SEASON_TOTALS_GROUP + "UNION ALL " + CLUB_TOTALS_SELECT + CLUB_TOTALS_GROUP,
+            nativeQuery = true)
+    List<Object[]> findScopedTotals();
+
+    // match id and exact-score flag of every game a user played, used to build the play history bitmaps
+    @Query("SELECT ug.match.id, ug.isCorrectScore FROM UserGame ug WHERE ug.user.id = :userId")
+    List<Object[]> findPlayedMatchRows(@Param("userId") Long userId);
+
 }
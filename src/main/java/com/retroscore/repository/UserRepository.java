@@ -2,12 +2,16 @@ package com.retroscore.repository;
 
 import com.retroscore.entity.User;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,12 +25,63 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // Get top users by total points
     List<User> findTop20ByOrderByTotalPointsDescCreatedAtAsc();
 
-    // Get user rank by points
-    @Query("SELECT COUNT(u) + 1 FROM User u WHERE u.totalPoints > :userPoints")
-    Long findUserRankByPoints(@Param("userPoints") Integer userPoints);
-
     Page<User> findAllByOrderByTotalPointsDescCreatedAtAsc(Pageable pageable);
 
+    // Apply scored games to a user's counters in one UPDATE, so concurrent guesses never lose an increment
+    @Modifying
+    @Query("UPDATE User u SET u.gamesPlayed = u.gamesPlayed + :games, " +
+            "u.gamesWon = u.gamesWon + :exactScores, " +
+            "u.exactScorePredictions = u.exactScorePredictions + :exactScores, " +
+            "u.gamesDrawn = u.gamesDrawn + :correctResults, " +
+            "u.correctResultPredictions = u.correctResultPredictions + :correctResults, " +
+            "u.gamesLost = u.gamesLost + :incorrectGuesses, " +
+            "u.totalPoints = u.totalPoints + :points " +
+            "WHERE u.id = :userId")
+    int incrementGameStats(@Param("userId") Long userId,
+                           @Param("games") int games,
+                           @Param("exactScores") int exactScores,
+                           @Param("correctResults") int correctResults,
+                           @Param("incorrectGuesses") int incorrectGuesses,
+                           @Param("points") int points);
+
+    // Flat rows for the in-memory leaderboard: id, username, totalPoints, gamesPlayed, gamesWon, createdAt, profilePicture
+    String LEADERBOARD_ROW_SELECT = "SELECT u.id, u.username, u.totalPoints, u.gamesPlayed, u.gamesWon, u.createdAt, u.profilePicture FROM User u";
+
+    @Query(LEADERBOARD_ROW_SELECT)
+    List<Object[]> findLeaderBoardRows();
+
+    @Query(LEADERBOARD_ROW_SELECT + " WHERE u.id IN :userIds")
+    List<Object[]> findLeaderBoardRowsByIdIn(@Param("userIds") Collection<Long> userIds);
+
+    // Keyset pages of the public leaderboard. A page after a cursor is read as two seeks on idx_users_leaderboard:
+    // the rest of the cursor's points group, then the users below it, so neither scans the group from its start.
+    String LEADERBOARD_PAGE_SELECT = "SELECT u.id AS id, u.username AS username, u.totalPoints AS totalPoints, " +
+            "u.gamesPlayed AS gamesPlayed, u.gamesWon AS gamesWon, u.createdAt AS createdAt, u.profilePicture AS profilePicture FROM User u ";
+    String LEADERBOARD_PAGE_ORDER = " ORDER BY u.totalPoints DESC, u.createdAt ASC NULLS LAST, u.id ASC";
+
+    @Query(LEADERBOARD_PAGE_SELECT + LEADERBOARD_PAGE_ORDER)
+    List<LeaderBoardRow> findLeaderBoardFirstPage(Limit limit);
+
+    @Query(LEADERBOARD_PAGE_SELECT +
+            "WHERE u.totalPoints = :points " +
+            "AND (u.createdAt > :createdAt OR u.createdAt IS NULL OR (u.createdAt = :createdAt AND u.id > :id))" +
+            LEADERBOARD_PAGE_ORDER)
+    List<LeaderBoardRow> findLeaderBoardTieGroupAfter(@Param("points") Integer points,
+                                                      @Param("createdAt") LocalDateTime createdAt,
+                                                      @Param("id") Long id,
+                                                      Limit limit);
+
+    // users without a join date sort last within their points, so only later ids of that group remain
+    @Query(LEADERBOARD_PAGE_SELECT +
+            "WHERE u.totalPoints = :points AND u.createdAt IS NULL AND u.id > :id" +
+            LEADERBOARD_PAGE_ORDER)
+    List<LeaderBoardRow> findLeaderBoardTieGroupAfterUndated(@Param("points") Integer points,
+                                                             @Param("id") Long id,
+                                                             Limit limit);
+
+    @Query(LEADERBOARD_PAGE_SELECT + "WHERE u.totalPoints < :points" + LEADERBOARD_PAGE_ORDER)
+    List<LeaderBoardRow> findLeaderBoardBelow(@Param("points") Integer points, Limit limit);
+
     // Get user stats with rank
     @Query("SELECT u, " +
             "(SELECT COUNT(u2) + 1 FROM User u2 WHERE u2.totalPoints > u.totalPoints) as rank " +
@@ -1,6 +1,7 @@
 package com.retroscore.security;
 import com.retroscore.entity.User;
 import com.retroscore.service.JWTService;
+import com.retroscore.service.UserIdentityCache;
 import com.retroscore.service.UserService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -9,12 +10,14 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Component
 public class OptionalJWTAuthenticationFilter extends OncePerRequestFilter{
@@ -22,11 +25,19 @@ public class OptionalJWTAuthenticationFilter extends OncePerRequestFilter{
 
     private final JWTService jwtService;
     private final UserService userService;
+    private final UserIdentityCache userIdentityCache;
+
+    // build the principal from the token and the identity cache instead of loading the user per request
+    private final boolean statelessPrincipal;
 
     @Autowired
-    public OptionalJWTAuthenticationFilter(JWTService jwtService, UserService userService) {
+    public OptionalJWTAuthenticationFilter(JWTService jwtService, UserService userService,
+                                           UserIdentityCache userIdentityCache,
+                                           @Value("${jwt.stateless-principal.enabled:false}") boolean statelessPrincipal) {
         this.jwtService = jwtService;
         this.userService = userService;
+        this.userIdentityCache = userIdentityCache;
+        this.statelessPrincipal = statelessPrincipal;
     }
 
     @Override
@@ -40,11 +51,14 @@ public class OptionalJWTAuthenticationFilter extends OncePerRequestFilter{
             try {
                 String token = authHeader.substring(7);
 
-                // Validate token
-                if (!jwtService.isTokenExpired(token)) {
-                    String userEmail = jwtService.getEmailFromToken(token);
+                // Validate token, one signature check (or a cache hit) for signature, expiry and claims
+                Optional<VerifiedToken> verified = jwtService.verifyIfValid(token);
+                if (verified.isPresent()) {
+                    String userEmail = verified.get().email();
 
-                    if (userEmail != null) {
+                    if (userEmail != null && statelessPrincipal) {
+                        authenticateStateless(verified.get(), userEmail);
+                    } else if (userEmail != null) {
                         User user = userService.findByEmail(userEmail);
 
                         if (user != null) {
@@ -66,7 +80,7 @@ public class OptionalJWTAuthenticationFilter extends OncePerRequestFilter{
                         }
                     }
                 } else {
-                    logger.debug("JWT token is expired");
+                    logger.debug("JWT token is expired or invalid");
                 }
             } catch (Exception e) {
                 // Log error but don't block request
@@ -80,6 +94,25 @@ public class OptionalJWTAuthenticationFilter extends OncePerRequestFilter{
         chain.doFilter(request, response);
     }
 
+    private void authenticateStateless(VerifiedToken token, String userEmail) {
+        Long userId = Long.valueOf(token.subject());
+        Optional<UserIdentityCache.Identity> identity = userIdentityCache.get(userId);
+
+        // a token issued before an email change no longer belongs to this account
+        if (identity.isEmpty() || !userEmail.equals(identity.get().email())) {
+            logger.debug("No user {} with email {}", userId, userEmail);
+            return;
+        }
+
+        UserIdentityCache.Identity current = identity.get();
+        UserPrincipal userPrincipal = UserPrincipal.stateless(userId, current.email(), current.username(),
+                current.googleId(), current.profilePicture(), () -> userService.findById(userId));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(userPrincipal, null, userPrincipal.getAuthorities()));
+
+        logger.debug("JWT authenticated user {} without loading it", userId);
+    }
+
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) {
         // Skip this filter for OAuth2 endpoints to avoid conflicts
@@ -75,6 +75,10 @@ public class SecurityConfig {
                                 "/api/game/**",           // Game endpoints
                                 "/api/matches/**",        // Browse matches
                                 "/api/leaderboard/public", // public leaderboard
+                                "/api/leaderboard/public/cursor", // keyset-paged public leaderboard
+                                "/api/leaderboard/period/*", // daily, weekly and monthly leaderboards
+                                "/api/leaderboard/season/*", // per-season leaderboards
+                                "/api/leaderboard/club/*", // per-club leaderboards
                                 "/static/**", // Public static files
                                 "/logos/**" // Allow logos without auth
 
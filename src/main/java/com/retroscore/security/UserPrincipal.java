@@ -9,15 +9,45 @@ import org.springframework.security.oauth2.core.user.OAuth2User;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
+import java.util.function.Supplier;
 
 public class UserPrincipal implements OAuth2User, UserDetails {
 
-    private final User user;
+    private final Long userId;
+    private final String email;
+    private final String username;
+    private final String googleId;
+    private final String profilePicture;
     private final Map<String, Object> attributes;
 
+    // loads the full entity the first time getUser() is called, the principal lives for one request
+    private final transient Supplier<User> userLoader;
+    private User user;
+
     public UserPrincipal(User user, Map<String, Object> attributes) {
+        this(user.getId(), user.getEmail(), user.getUsername(), user.getGoogleId(), user.getProfilePicture(),
+                attributes, null);
         this.user = user;
+    }
+
+    private UserPrincipal(Long userId, String email, String username, String googleId, String profilePicture,
+                          Map<String, Object> attributes, Supplier<User> userLoader) {
+        this.userId = userId;
+        this.email = email;
+        this.username = username;
+        this.googleId = googleId;
+        this.profilePicture = profilePicture;
         this.attributes = attributes;
+        this.userLoader = userLoader;
+    }
+
+    /**
+     * A principal built without the {@code users} row, from token claims and cached identity columns.
+     * The entity is only loaded through {@code userLoader} if someone calls {@link #getUser()}.
+     */
+    public static UserPrincipal stateless(Long userId, String email, String username, String googleId,
+                                          String profilePicture, Supplier<User> userLoader) {
+        return new UserPrincipal(userId, email, username, googleId, profilePicture, Collections.emptyMap(), userLoader);
     }
 
     public static UserPrincipal create(User user) {
@@ -53,27 +83,30 @@ public class UserPrincipal implements OAuth2User, UserDetails {
 
     @Override
     public String getName() {
-        return user.getGoogleId();
+        return googleId;
     }
 
 
     public User getUser() {
+        if (user == null && userLoader != null) {
+            user = userLoader.get();
+        }
         return user;
     }
 
 
     public Long getUserId() {
-        return user.getId();
+        return userId;
     }
 
 
     public String getEmail() {
-        return user.getEmail();
+        return email;
     }
 
 
     public String getUsername() {
-        return user.getUsername();
+        return username;
     }
 
     @Override
@@ -97,6 +130,6 @@ public class UserPrincipal implements OAuth2User, UserDetails {
     }
 
     public String getProfilePicture() {
-        return user.getProfilePicture();
+        return profilePicture;
     }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.retroscore.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+
+/**
+ * Claims of a JWT whose signature has been checked, the result of parsing a token exactly once.
+ */
+public record VerifiedToken(Claims claims) {
+
+    // the jti claim, null for tokens issued before tokens carried one
+    public String id() {
+        return claims.getId();
+    }
+
+    public String subject() {
+        return claims.getSubject();
+    }
+
+    public String email() {
+        return claims.get("email", String.class);
+    }
+
+    public String username() {
+        return claims.get("username", String.class);
+    }
+
+    public String profilePicture() {
+        return claims.get("profilePicture", String.class);
+    }
+
+    public Date expiration() {
+        return claims.getExpiration();
+    }
+
+    public boolean isExpired() {
+        Date expiration = claims.getExpiration();
+        return expiration != null && expiration.before(new Date());
+    }
+}
@@ -3,11 +3,13 @@ package com.retroscore.service;
 import com.retroscore.controller.AuthController;
 import com.retroscore.entity.User;
 import com.retroscore.enums.GameDifficulty;
+import com.retroscore.event.UserUpdatedEvent;
 import com.retroscore.enums.TimerDurations;
 import com.retroscore.repository.UserRepository;
 import com.retroscore.security.UserPrincipal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.oauth2.client.userinfo.DefaultOAuth2UserService;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserRequest;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
@@ -20,10 +22,12 @@ import java.util.Optional;
 @Service
 public class CustomOAuth2UserService extends DefaultOAuth2UserService {
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
     private static final Logger log = LoggerFactory.getLogger(CustomOAuth2UserService.class);
 
-    public CustomOAuth2UserService(UserRepository userRepository) {
+    public CustomOAuth2UserService(UserRepository userRepository, ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -110,7 +114,9 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
 
 
          log.info("User logged in via Google OAuth: {}", emailVerified);
-         return userRepository.save(existingUser);
+         User saved = userRepository.save(existingUser);
+         eventPublisher.publishEvent(new UserUpdatedEvent(saved.getId()));
+         return saved;
 
      }
 
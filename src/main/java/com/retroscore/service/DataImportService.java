@@ -5,6 +5,7 @@ import com.opencsv.exceptions.CsvException;
 import com.retroscore.entity.FootballClub;
 import com.retroscore.entity.Match;
 import com.retroscore.entity.Season;
+import com.retroscore.event.SeasonImportedEvent;
 import com.retroscore.repository.FootballClubRepository;
 import com.retroscore.repository.MatchRepository;
 import com.retroscore.repository.SeasonRepository;
@@ -12,6 +13,7 @@ import jakarta.transaction.Transactional;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -20,7 +22,9 @@ import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
@@ -30,6 +34,7 @@ public class DataImportService {
     private final MatchRepository matchRepository;
     private final SeasonRepository seasonRepository;
     private final FootballClubRepository footballClubRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
 
     private  static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
@@ -42,6 +47,8 @@ public class DataImportService {
             List<String[]> csvData = parseCsvFile(csvFilePath);
 
             Season season = findOrCreateSeason(seasonName);
+            // clubs resolved once per import, repeated lookups would also flush the pending insert batches
+            Map<String, FootballClub> clubsByName = new HashMap<>();
 
             int successCount = 0;
             int errorCount = 0;
@@ -50,7 +57,7 @@ public class DataImportService {
                 String[] row = csvData.get(i);
                 try{
                     if (isValidRow(row)){
-                        Match match = createMatchFromRow(row,season);
+                        Match match = createMatchFromRow(row,season,clubsByName);
                         matchRepository.save(match);
                         successCount++;
                         log.debug("Successfully imported a match:{} vs {}",
@@ -65,6 +72,9 @@ public class DataImportService {
             log.info("Import completed for season: {}. Success:{}, Errors:{}",
                     seasonName, successCount, errorCount);
 
+            // derived match data is rebuilt once this transaction commits
+            eventPublisher.publishEvent(new SeasonImportedEvent(season.getId(), seasonName));
+
         } catch (Exception e) {
            log.error("Failed to import season data :{}", e.getMessage(),e);
            throw new RuntimeException("Failed to import season data",e);
@@ -96,15 +106,15 @@ public class DataImportService {
                 StringUtils.hasText(row[6]);
     }
 
-    private Match createMatchFromRow(String[] row, Season season){
+    private Match createMatchFromRow(String[] row, Season season, Map<String, FootballClub> clubsByName){
         Match match = new Match();
 
         match.setSeason(season);
 
         match.setMatchDate(parseDate(row[1]));
 
-        match.setHomeTeam(findOrCreateTeam(row[3]));
-        match.setAwayTeam(findOrCreateTeam(row[4]));
+        match.setHomeTeam(clubsByName.computeIfAbsent(row[3], this::findOrCreateTeam));
+        match.setAwayTeam(clubsByName.computeIfAbsent(row[4], this::findOrCreateTeam));
 
         match.setHomeScore(parseInteger(row[5]));
         match.setAwayScore(parseInteger(row[6]));
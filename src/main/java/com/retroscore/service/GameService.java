@@ -1,12 +1,11 @@
 package com.retroscore.service;
 
 import com.retroscore.dto.*;
-import com.retroscore.entity.FootballClub;
 import com.retroscore.entity.Match;
 import com.retroscore.entity.User;
 import com.retroscore.entity.UserGame;
 import com.retroscore.enums.GameResult;
-import com.retroscore.enums.MatchResult;
+import com.retroscore.event.GuessScoredEvent;
 import com.retroscore.exception.MatchNotFoundException;
 import com.retroscore.exception.NoMatchesFoundException;
 import com.retroscore.exception.UserAlreadyPlayedException;
@@ -17,12 +16,18 @@ import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Transactional
@@ -32,66 +37,159 @@ public class GameService {
     private final MatchRepository matchRepository;
     private final UserGameRepository userGameRepository;
     private final UserRepository userRepository;
+    private final MatchCatalog matchCatalog;
+    private final PlayHistoryCache playHistoryCache;
+    private final MatchResponseCache matchResponseCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean databaseSampling;
     private static final Logger logger = LoggerFactory.getLogger(GameService.class);
     private static final Random RANDOM = new Random();
+    private static final int MAX_MATCH_BATCH_SIZE = 20;
 
     @Autowired
-    public GameService(MatchRepository matchRepository, UserGameRepository userGameRepository, UserRepository userRepository) {
+    public GameService(MatchRepository matchRepository, UserGameRepository userGameRepository, UserRepository userRepository,
+                       MatchCatalog matchCatalog, PlayHistoryCache playHistoryCache, MatchResponseCache matchResponseCache,
+                       ApplicationEventPublisher eventPublisher,
+                       @Value("${game.random-match.source:catalog}") String randomMatchSource) {
         this.matchRepository = matchRepository;
         this.userGameRepository = userGameRepository;
         this.userRepository = userRepository;
+        this.matchCatalog = matchCatalog;
+        this.playHistoryCache = playHistoryCache;
+        this.matchResponseCache = matchResponseCache;
+        this.eventPublisher = eventPublisher;
+        this.databaseSampling = "database".equalsIgnoreCase(randomMatchSource);
     }
 
-    public MatchDto getRandomMatch(Long userId, Long teamId, Long seasonId, String mode) {
+    /**
+     * Random match as a ready-to-send JSON body. The match itself comes pre-rendered from
+     * {@link MatchResponseCache}; only the caller's play history is serialized per request.
+     */
+    public MatchResponseCache.ResponseBody getRandomMatch(Long userId, Long teamId, Long seasonId, String mode, boolean acceptsGzip) {
         if (mode == null || mode.isBlank()) {
             mode = "discovery";
         }
 
-        List<Match> matches = getFilteredMatches(userId, teamId, seasonId, mode);
+        long randomMatchId;
+        // the anti-join can only exclude played matches, "incorrect" always goes through the catalog
+        if (databaseSampling && !"incorrect".equals(mode)) {
+            randomMatchId = sampleMatchIdFromDatabase(userId, teamId, seasonId, mode);
+        } else {
+            long[] matchIds = getFilteredMatchIds(userId, teamId, seasonId, mode);
+
+            if (matchIds.length == 0) {
+                throw new NoMatchesFoundException();
+            }
+
+            randomMatchId = matchIds[RANDOM.nextInt(matchIds.length)];
+        }
+        MatchResponseCache.RenderedMatch renderedMatch = matchResponseCache.get(randomMatchId,
+                () -> matchRepository.findMatchDtoById(randomMatchId)
+                        .orElseThrow(() -> new MatchNotFoundException(randomMatchId)));
+
+        PlayHistoryDto playHistory = userId != null ? findPreviousPlayHistory(userId, randomMatchId) : null;
+
+        return matchResponseCache.body(renderedMatch, playHistory, acceptsGzip);
+    }
+
+    /**
+     * Picks up to {@code count} distinct random matches for the same filters, so a client
+     * can prefetch a whole session in one call. Play history for all of them comes from one IN query.
+     */
+    public List<MatchDto> getRandomMatches(Long userId, Long teamId, Long seasonId, String mode, int count) {
+        if (mode == null || mode.isBlank()) {
+            mode = "discovery";
+        }
+        count = Math.max(1, Math.min(count, MAX_MATCH_BATCH_SIZE));
 
-        if (matches.isEmpty()) {
+        long[] matchIds = getFilteredMatchIds(userId, teamId, seasonId, mode);
+
+        if (matchIds.length == 0) {
             throw new NoMatchesFoundException();
         }
 
-        Match randomMatch = matches.get(RANDOM.nextInt(matches.size()));
-        MatchDto matchDto = convertMatchToDto(randomMatch);
+        // partial Fisher-Yates shuffle on a copy, the catalog arrays are shared
+        long[] candidates = matchIds.clone();
+        int picks = Math.min(count, candidates.length);
+        List<Long> pickedIds = new ArrayList<>(picks);
+        for (int i = 0; i < picks; i++) {
+            int j = i + RANDOM.nextInt(candidates.length - i);
+            long picked = candidates[j];
+            candidates[j] = candidates[i];
+            candidates[i] = picked;
+            pickedIds.add(picked);
+        }
+
+        Map<Long, MatchDto> matchesById = matchRepository.findMatchDtosByIdIn(pickedIds).stream()
+                .collect(Collectors.toMap(MatchDto::getMatchId, Function.identity()));
+
+        Map<Long, UserGame> previousGames = userId != null ? findPreviousUserGames(userId, pickedIds) : Map.of();
+
+        List<MatchDto> matchDtos = new ArrayList<>(picks);
+        for (Long matchId : pickedIds) {
+            MatchDto matchDto = matchesById.get(matchId);
+            if (matchDto == null) {
+                continue;
+            }
+            UserGame previousGame = previousGames.get(matchId);
+            if (previousGame != null) {
+                matchDto.setPlayHistoryDto(convertUserGameToPlayHistoryDto(previousGame));
+            }
+            matchDtos.add(matchDto);
+        }
+        return matchDtos;
+    }
+
+    private Map<Long, UserGame> findPreviousUserGames(Long userId, List<Long> matchIds) {
+        PlayHistoryCache.PlayHistory playHistory = playHistoryCache.get(userId);
+        List<Long> playedMatchIds = matchIds.stream().filter(playHistory::hasPlayed).toList();
+        if (playedMatchIds.isEmpty()) {
+            return Map.of();
+        }
+        return userGameRepository.findByUserIdAndMatchIdIn(userId, playedMatchIds).stream()
+                .collect(Collectors.toMap(userGame -> userGame.getMatch().getId(), Function.identity(), (first, second) -> first));
+    }
+
+    private long sampleMatchIdFromDatabase(Long userId, Long teamId, Long seasonId, String mode) {
+        Long excludeUserId = "unplayed".equals(mode) || "discovery".equals(mode) ? userId : null;
+        long candidates = matchRepository.countSampleCandidates(teamId, seasonId, excludeUserId);
+
+        // discovery falls back to every match once fewer than 5 are left unplayed
+        if ("discovery".equals(mode) && excludeUserId != null && candidates < 5) {
+            excludeUserId = null;
+            candidates = matchRepository.countSampleCandidates(teamId, seasonId, null);
+        }
 
-        if (userId != null) {
-            enrichWithPreviousPlayHistory(matchDto, userId);
+        if (candidates == 0) {
+            throw new NoMatchesFoundException();
         }
 
-        return matchDto;
+        long offset = RANDOM.nextLong(candidates);
+        return matchRepository.findSampleCandidateIdAtOffset(teamId, seasonId, excludeUserId, offset)
+                .orElseThrow(NoMatchesFoundException::new);
     }
 
-    private List<Match> getFilteredMatches(Long userId,Long teamId,Long seasonId,String mode){
+    private long[] getFilteredMatchIds(Long userId, Long teamId, Long seasonId, String mode){
         logger.info("Filtering matches with parameters: userId={}, teamId={}, seasonId={}, mode={}", userId, teamId, seasonId, mode);
 
-        List<Match> matches;
-        if (teamId != null && seasonId !=null){
-            matches = matchRepository.findByTeamIdAndSeasonId(teamId,seasonId);
-        } else if (teamId !=null){
-            matches = matchRepository.findByTeamId(teamId);
-        } else if (seasonId!=null) {
-            matches = matchRepository.findBySeasonId(seasonId);
-        } else {
-            matches = matchRepository.findAll();
-        }
+        // candidates come from the in-memory catalog, no entities are loaded here
+        long[] matchIds = matchCatalog.findMatchIds(teamId, seasonId);
 
         if(userId!= null){
+            PlayHistoryCache.PlayHistory playHistory = playHistoryCache.get(userId);
             switch (mode){
                 case "unplayed":
-                    matches = matches.stream().filter(match -> userNotPlayedMatch(userId, match.getId())).collect(Collectors.toList());
+                    matchIds = playHistory.unplayed(matchIds);
                     break;
                 case "incorrect":
-                    matches = matches.stream()
-                            .filter(match -> wasUserIncorrectOnMatch(userId, match.getId()))
-                                    .collect(Collectors.toList());
+                    // user played AND got score wrong
+                    matchIds = playHistory.incorrect(matchIds);
                     break;
                 case "discovery":
-                    List<Match> unplayedMatches  = matches.stream().filter(match -> userNotPlayedMatch(userId, match.getId())).collect(Collectors.toList());
+                    long[] unplayedMatchIds = playHistory.unplayed(matchIds);
 
-                    if(unplayedMatches.size()>=5){
-                        matches = unplayedMatches;
+                    if(unplayedMatchIds.length>=5){
+                        matchIds = unplayedMatchIds;
                     }
                     break;
                 default:
@@ -99,181 +197,84 @@ public class GameService {
             }
         }
 
-        return matches;
-
-    }
+        return matchIds;
 
-    private boolean userNotPlayedMatch(Long userId, Long matchId) {
-        return userGameRepository.findByUserIdAndMatchId(userId, matchId).isEmpty();
     }
 
-    private boolean wasUserIncorrectOnMatch(Long userId, Long matchId){
-        Optional<UserGame> userGameOpt = userGameRepository.findByUserIdAndMatchId(userId, matchId);
-
-        if (userGameOpt.isPresent()) {
-            UserGame userGame = userGameOpt.get();
-            // User played AND got score wrong
-            return !userGame.getIsCorrectScore();
-        }
-
-        // User never played this match
-        return false;
-    }
-
-    private void enrichWithPreviousPlayHistory(MatchDto matchDto, Long userId){
-       userGameRepository.findByUserIdAndMatchId(userId,matchDto.getMatchId()).ifPresent(previousUserGame -> {
-            PlayHistoryDto previousUserGameHistory = new PlayHistoryDto();
-            previousUserGameHistory.setPreviousPlayed(true);
-            previousUserGameHistory.setWasCorrectScore(previousUserGame.getIsCorrectResult());
-            previousUserGameHistory.setWasCorrectResult(previousUserGame.getIsCorrectResult());
-           previousUserGameHistory.setPlayedAt(previousUserGame.getPlayedAt());
-
-            matchDto.setPlayHistoryDto(previousUserGameHistory);
-        });
+    private PlayHistoryDto findPreviousPlayHistory(Long userId, Long matchId){
+       if (!playHistoryCache.get(userId).hasPlayed(matchId)) {
+           return null;
+       }
+       return userGameRepository.findByUserIdAndMatchId(userId, matchId)
+               .map(this::convertUserGameToPlayHistoryDto)
+               .orElse(null);
     }
 
-    private MatchDto convertMatchToDto(Match match){
-        MatchDto matchDto = new MatchDto();
-        matchDto.setMatchId(match.getId());
-        matchDto.setMatchTitle(match.getMatchTitle());
-        matchDto.setSeasonName(match.getSeason().getSeasonName());
-        matchDto.setHomeTeam(convertFootballClubToDto(match.getHomeTeam()));
-        matchDto.setAwayTeam(convertFootballClubToDto(match.getAwayTeam()));
-        matchDto.setStadiumName(match.getMatchStadiumName());
-        matchDto.setHomeScore(match.getHomeScore());
-        matchDto.setAwayScore(match.getAwayScore());
-        matchDto.setMatchDate(match.getMatchDate());
-        matchDto.setHomeCorners(match.getHomeCorners());
-        matchDto.setAwayCorners(match.getAwayCorners());
-        matchDto.setHomeYellowCards(match.getHomeYellowCards());
-        matchDto.setAwayYellowCards(match.getAwayYellowCards());
-        matchDto.setHomeRedCards(match.getHomeRedCards());
-        matchDto.setAwayRedCards(match.getAwayRedCards());
-
-        return matchDto;
+    private PlayHistoryDto convertUserGameToPlayHistoryDto(UserGame previousUserGame){
+        PlayHistoryDto previousUserGameHistory = new PlayHistoryDto();
+        previousUserGameHistory.setPreviousPlayed(true);
+        previousUserGameHistory.setWasCorrectScore(previousUserGame.getIsCorrectResult());
+        previousUserGameHistory.setWasCorrectResult(previousUserGame.getIsCorrectResult());
+        previousUserGameHistory.setPlayedAt(previousUserGame.getPlayedAt());
 
-    }
-
-    private FootballClubDto convertFootballClubToDto(FootballClub club){
-        if(club == null){
-            return null;
-        };
-        FootballClubDto dto = new FootballClubDto();
-        dto.setClubId(club.getId());
-        dto.setName(club.getName());
-        dto.setIsActive(club.isActive());
-        dto.setLogoUrl(club.getLogoUrl());
-        dto.setStadiumName(club.getStadiumName());
-
-        return dto;
+        return previousUserGameHistory;
     }
 
     public UserGameResponse submitGuess(Long userId, UserGuessDto userGuess) {
 
-        // validate user exists
-        User user = userRepository.findById(userId).orElseThrow(()-> new RuntimeException("User not found"));
-
-
         // validate the match exists
-        Match match = matchRepository.findById(userGuess.getMatchId()).orElseThrow(()-> new MatchNotFoundException(userGuess.getMatchId()));
+        Match match = matchRepository.findWithTeamsById(userGuess.getMatchId()).orElseThrow(()-> new MatchNotFoundException(userGuess.getMatchId()));
 
         // user failed to submit a guess in time, we don't record it as a user game
         if (userGuess.getTimeIsUp() == true){
-            MatchResult actualMatchResult = getMatchResultEnum(match.getHomeScore(), match.getAwayScore());
-            return UserGameResponse.builder()
-                    .matchId(match.getId())
-                    .matchTitle(match.getMatchTitle())
-                    .actualHomeScore(match.getHomeScore())
-                    .actualAwayScore(match.getAwayScore())
-                    .isCorrectScore(false)
-                    .isCorrectResult(false)
-                    .gameResult(GameResult.INCORRECT)
-                    .playedAt(LocalDateTime.now())
-                    .resultMessage(GameResult.TIMEUP.getMessage())
-                    .userGamePoints(GameResult.TIMEUP.getPoints())
-                    .actualMatchResult(actualMatchResult)
-                    .build();
-
+            return GuessScoring.timeUpResponse(match.getId(), match.getMatchTitle(), match.getHomeScore(), match.getAwayScore());
         }
 
 
-        // check if user has played the specific match before
-        Optional<UserGame> existingUserGame = userGameRepository.findByUserIdAndMatchId(userId, match.getId());
-        if (existingUserGame.isPresent()){
-            throw new UserAlreadyPlayedException(userId, match.getId());
-        }
-
         logger.info("This is the submission from user={}",userGuess);
         // create new user game if it is the first time playing this match.
         UserGame userGame = new UserGame();
 
-        userGame.setUser(user);
+        // reference only, the user row is never loaded on the guess path
+        userGame.setUser(userRepository.getReferenceById(userId));
         userGame.setPlayedAt(LocalDateTime.now());
         userGame.setMatch(match);
 
-        if(Boolean.TRUE.equals(userGuess.getIsEasyMode())){
-            logger.info("This is the entry for easy mode play with a match result ={}", userGuess);
-            userGame.setPredictedHomeScore(null);
-            userGame.setPredictedAwayScore(null);
-            userGame.setIsCorrectScore(false);
-
-            MatchResult userSubmittedResult =  userGuess.getMatchResult();
-            MatchResult actualMatchResult = getMatchResultEnum(match.getHomeScore(), match.getAwayScore());
-
-            userGame.setIsCorrectResult(actualMatchResult == userSubmittedResult);
-        }else {
-            logger.info("This is the entry for hard mode play with no match result ={}", userGuess);
-            userGame.setPredictedHomeScore(userGuess.getPredictedHomeScore());
-            userGame.setPredictedAwayScore(userGuess.getPredictedAwayScore());
-            //calculate other user game results
-            calculateGameResult(userGame, match);
-        }
+        GuessScoring.applyGuess(userGame, userGuess, match.getHomeScore(), match.getAwayScore());
 
-        UserGame savedGame =  userGameRepository.save(userGame);
+        // update user entity's stats, this also validates the user exists before the game is inserted
+        updateUserEntityStats(userId, userGame);
 
-        // update user entity's stats
-        updateUserEntityStats(userGame);
+        // the unique (user_id, match_id) constraint decides whether the match was played before
+        UserGame savedGame;
+        try {
+            savedGame = userGameRepository.saveAndFlush(userGame);
+        } catch (DataIntegrityViolationException e) {
+            if (GuessScoring.isUserMatchConflict(e)) {
+                throw new UserAlreadyPlayedException(userId, match.getId());
+            }
+            throw e;
+        }
+        // delivered after commit, so the play history and leaderboards never count a guess that rolled back
+        eventPublisher.publishEvent(new GuessScoredEvent(userId, match.getId(), match.getSeason().getId(),
+                match.getHomeTeam().getId(), match.getAwayTeam().getId(),
+                GuessScoring.gameResult(userGame), userGame.getPlayedAt()));
 
         return buildUserGameResponse(savedGame, match);
     }
 
-    private void calculateGameResult(UserGame userGame, Match match){
-        Integer actualHomeScore = match.getHomeScore();
-        Integer actualAwayScore = match.getAwayScore();
-        Integer predictedHomeScore = userGame.getPredictedHomeScore();
-        Integer predictedAwayScore = userGame.getPredictedAwayScore();
-
-        boolean isCorrectScore = actualHomeScore.equals(predictedHomeScore) && actualAwayScore.equals(predictedAwayScore);
-        userGame.setIsCorrectScore(isCorrectScore);
-
-
-        boolean isCorrectResult = isCorrectScore || (getMatchResult(actualHomeScore,actualAwayScore) == getMatchResult(predictedHomeScore,predictedAwayScore));
-        userGame.setIsCorrectResult(isCorrectResult);
-
-    }
-
-    private int getMatchResult(Integer homeScore, Integer awayScore){
-        return homeScore.compareTo(awayScore);
-    }
-
-
-    // method to update user stats after playing a game
-    private void updateUserEntityStats(UserGame userGame){
-        User user = userGame.getUser();
-        user.setGamesPlayed(user.getGamesPlayed() +1);
-        if(userGame.getIsCorrectScore()){
-            user.setGamesWon(user.getGamesWon()+1);
-            user.setExactScorePredictions(user.getExactScorePredictions()+1);
-        } else if(userGame.getIsCorrectResult()) {
-            user.setCorrectResultPredictions(user.getCorrectResultPredictions()+1);
-            user.setGamesDrawn(user.getGamesDrawn()+1);
+    // method to update user stats after playing a game, one atomic UPDATE in the database
+    private void updateUserEntityStats(Long userId, UserGame userGame){
+        GameResult gameResult = GuessScoring.gameResult(userGame);
+        int updatedRows = userRepository.incrementGameStats(userId, 1,
+                gameResult == GameResult.EXACT_SCORE ? 1 : 0,
+                gameResult == GameResult.CORRECT_RESULT ? 1 : 0,
+                gameResult == GameResult.INCORRECT ? 1 : 0,
+                gameResult.getPoints());
+        if (updatedRows == 0) {
+            throw new RuntimeException("User not found");
         }
-        else {
-                user.setGamesLost(user.getGamesLost()+1);
-        }
-        user.setTotalPoints(user.calculateTotalPoints());
-        logger.info("users total points are ={}", user.getTotalPoints());
-        userRepository.save(user);
+        logger.info("user {} scored {} points", userId, gameResult.getPoints());
     }
 
 
@@ -303,48 +304,7 @@ public class GameService {
     }
 
     private UserGameResponse buildUserGameResponse(UserGame userGame, Match match){
-        GameResult resultMessage = generateResultMessage(userGame);
-        MatchResult actualMatchResult = getMatchResultEnum(match.getHomeScore(), match.getAwayScore());
-        return UserGameResponse.builder()
-                .userGameId(userGame.getId())
-                .matchId(match.getId())
-                .matchTitle(match.getMatchTitle())
-                .predictedHomeScore(userGame.getPredictedHomeScore())
-                .predictedAwayScore(userGame.getPredictedAwayScore())
-                .actualHomeScore(match.getHomeScore())
-                .actualAwayScore(match.getAwayScore())
-                .isCorrectScore(userGame.getIsCorrectScore())
-                .isCorrectResult(userGame.getIsCorrectResult())
-                .gameResult(userGame.getGameResult())
-                .playedAt(userGame.getPlayedAt())
-                .resultMessage(resultMessage.getMessage())
-                .userGamePoints(resultMessage.getPoints())
-                .actualMatchResult(actualMatchResult)
-                .build();
-
-
-    }
-
-    private MatchResult getMatchResultEnum(Integer homeScore, Integer awayScore) {
-        int comparison = homeScore.compareTo(awayScore);
-        if (comparison > 0) {
-            return MatchResult.HOME_WIN;
-        } else if (comparison < 0) {
-            return MatchResult.AWAY_WIN;
-        } else {
-            return MatchResult.DRAW;
-        }
-    }
-
-    private GameResult generateResultMessage(UserGame userGame){
-
-        if(userGame.getIsCorrectScore()){
-            return  GameResult.EXACT_SCORE;
-        } else if (userGame.getIsCorrectResult()){
-            return GameResult.CORRECT_RESULT;
-        } else {
-          return  GameResult.INCORRECT;
-        }
+        return GuessScoring.buildResponse(userGame, match.getId(), match.getMatchTitle(), match.getHomeScore(), match.getAwayScore());
     }
 
     public UserGameResponse getGameResult(Long userId, Long userGameId){
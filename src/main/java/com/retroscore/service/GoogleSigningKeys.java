@@ -0,0 +1,152 @@
+package com.retroscore.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory copy of Google's ID-token signing keys (JWKS), keyed by {@code kid}.
+ * The key set is fetched once and then only again when it passes the max-age Google sends
+ * in Cache-Control, or when a token names a key id we have not seen (Google rotated keys).
+ * Refresh attempts are spaced at least {@code google.jwks.min-refresh-interval-ms} apart so
+ * tokens with made-up key ids cannot drive requests to Google, and a failed refresh keeps
+ * serving the keys we already have.
+ */
+@Service
+public class GoogleSigningKeys {
+
+    private static final Logger logger = LoggerFactory.getLogger(GoogleSigningKeys.class);
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+
+    private final URI jwksUri;
+    private final Duration requestTimeout;
+    private final long defaultMaxAgeNanos;
+    private final long minRefreshIntervalNanos;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private volatile KeySet keySet = KeySet.EMPTY;
+    private final Object refreshLock = new Object();
+    // guarded by refreshLock
+    private long lastAttemptAt;
+
+    public GoogleSigningKeys(@Value("${google.jwks.url:https://www.googleapis.com/oauth2/v3/certs}") String jwksUrl,
+                             @Value("${google.jwks.connect-timeout-ms:2000}") long connectTimeoutMs,
+                             @Value("${google.jwks.request-timeout-ms:3000}") long requestTimeoutMs,
+                             @Value("${google.jwks.default-max-age-ms:3600000}") long defaultMaxAgeMs,
+                             @Value("${google.jwks.min-refresh-interval-ms:30000}") long minRefreshIntervalMs) {
+        this.jwksUri = URI.create(jwksUrl);
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.defaultMaxAgeNanos = defaultMaxAgeMs * 1_000_000L;
+        this.minRefreshIntervalNanos = minRefreshIntervalMs * 1_000_000L;
+        this.lastAttemptAt = System.nanoTime() - minRefreshIntervalNanos;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+    }
+
+    // warm the cache so the first login after startup does not wait for Google
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refresh(System.nanoTime());
+    }
+
+    /**
+     * The public key Google signed tokens with under {@code kid}, empty if Google does not publish it.
+     */
+    public Optional<PublicKey> find(String kid) {
+        if (kid == null) {
+            return Optional.empty();
+        }
+        long now = System.nanoTime();
+        KeySet current = keySet;
+        PublicKey key = current.keys.get(kid);
+        if (key != null && !current.isExpired(now)) {
+            return Optional.of(key);
+        }
+
+        // expired, or a kid we don't know yet, which usually means Google rotated its keys
+        return Optional.ofNullable(refresh(now).keys.get(kid));
+    }
+
+    private KeySet refresh(long now) {
+        synchronized (refreshLock) {
+            // covers both a refresh another thread just did while we waited and one that just failed
+            if (now - lastAttemptAt < minRefreshIntervalNanos) {
+                return keySet;
+            }
+            lastAttemptAt = System.nanoTime();
+            try {
+                keySet = fetch();
+                logger.info("Loaded {} Google signing keys", keySet.keys.size());
+            } catch (IOException | GeneralSecurityException | RuntimeException e) {
+                logger.warn("Could not refresh Google signing keys from {}: {}", jwksUri, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return keySet;
+        }
+    }
+
+    private KeySet fetch() throws IOException, InterruptedException, GeneralSecurityException {
+        HttpRequest request = HttpRequest.newBuilder(jwksUri)
+                .timeout(requestTimeout)
+                .GET()
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("JWKS endpoint returned status " + response.statusCode());
+        }
+
+        Map<String, PublicKey> keys = new HashMap<>();
+        KeyFactory rsa = KeyFactory.getInstance("RSA");
+        for (JsonNode jwk : objectMapper.readTree(response.body()).path("keys")) {
+            if (!"RSA".equals(jwk.path("kty").asText()) || !jwk.hasNonNull("kid")) {
+                continue;
+            }
+            BigInteger modulus = new BigInteger(1, Base64.getUrlDecoder().decode(jwk.path("n").asText()));
+            BigInteger exponent = new BigInteger(1, Base64.getUrlDecoder().decode(jwk.path("e").asText()));
+            keys.put(jwk.get("kid").asText(), rsa.generatePublic(new RSAPublicKeySpec(modulus, exponent)));
+        }
+
+        long fetchedAt = System.nanoTime();
+        long maxAgeNanos = response.headers().firstValue("Cache-Control")
+                .map(MAX_AGE::matcher)
+                .filter(Matcher::find)
+                .map(m -> Long.parseLong(m.group(1)) * 1_000_000_000L)
+                .orElse(defaultMaxAgeNanos);
+        return new KeySet(Map.copyOf(keys), fetchedAt + maxAgeNanos);
+    }
+
+    private record KeySet(Map<String, PublicKey> keys, long expiresAt) {
+
+        static final KeySet EMPTY = new KeySet(Map.of(), System.nanoTime());
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
@@ -3,12 +3,36 @@ package com.retroscore.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.retroscore.dto.GoogleUserInfo;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.client.RestClientException;
+import com.retroscore.exception.GoogleAuthUnavailableException;
+import com.retroscore.util.TokenDigest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class GoogleTokenValidatorService {
@@ -16,10 +40,10 @@ public class GoogleTokenValidatorService {
     private static final Logger logger = LoggerFactory.getLogger(GoogleTokenValidatorService.class);
 
     // Google's token info endpoint
-    private static final String GOOGLE_TOKEN_INFO_URL = "https://www.googleapis.com/oauth2/v1/tokeninfo?access_token=";
+    private static final String GOOGLE_TOKEN_INFO_URL = "https://www.googleapis.com/oauth2/v1/tokeninfo";
 
     // Alternative: Google's userinfo endpoint (more reliable for user data)
-    private static final String GOOGLE_USERINFO_URL = "https://www.googleapis.com/oauth2/v2/userinfo?access_token=";
+    private static final String GOOGLE_USERINFO_URL = "https://www.googleapis.com/oauth2/v2/userinfo";
 
     @Value("${spring.security.oauth2.client.registration.google.client-id}")
     private String webClientId;
@@ -29,18 +53,87 @@ public class GoogleTokenValidatorService {
     private String androidClientId;
 
 
-    private final RestTemplate restTemplate;
+    // Google signs ID tokens with either form of its issuer
+    private static final Set<String> GOOGLE_ISSUERS = Set.of("https://accounts.google.com", "accounts.google.com");
+
     private final ObjectMapper objectMapper;
 
-    public GoogleTokenValidatorService() {
-        this.restTemplate = new RestTemplate();
+    // checks signature and expiry of ID tokens against the cached Google keys, no call to Google per login
+    private final JwtParser idTokenParser;
+
+    // access tokens: one pooled client shared by all logins, and a cap on how many are checked at once
+    private final HttpClient httpClient;
+    private final URI tokenInfoUri;
+    private final URI userInfoUri;
+    private final Duration requestTimeout;
+    private final Semaphore inFlightValidations;
+    private final long bulkheadWaitMs;
+
+    // SHA-256 of an access token to the user it belongs to, valid until expiresAt (System.nanoTime)
+    private final Map<String, CachedUser> validatedTokens;
+    private final long cacheTtlNanos;
+
+    public GoogleTokenValidatorService(GoogleSigningKeys signingKeys,
+                                       @Value("${google.id-token.clock-skew-seconds:60}") long clockSkewSeconds,
+                                       @Value("${google.access-token.tokeninfo-url:" + GOOGLE_TOKEN_INFO_URL + "}") String tokenInfoUrl,
+                                       @Value("${google.access-token.userinfo-url:" + GOOGLE_USERINFO_URL + "}") String userInfoUrl,
+                                       @Value("${google.access-token.connect-timeout-ms:2000}") long connectTimeoutMs,
+                                       @Value("${google.access-token.request-timeout-ms:3000}") long requestTimeoutMs,
+                                       @Value("${google.access-token.max-concurrent:32}") int maxConcurrent,
+                                       @Value("${google.access-token.bulkhead-wait-ms:100}") long bulkheadWaitMs,
+                                       @Value("${google.access-token.cache.ttl-ms:60000}") long cacheTtlMs,
+                                       @Value("${google.access-token.cache.max-entries:10000}") int cacheMaxEntries) {
         this.objectMapper = new ObjectMapper();
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        this.tokenInfoUri = URI.create(tokenInfoUrl);
+        this.userInfoUri = URI.create(userInfoUrl);
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.inFlightValidations = new Semaphore(maxConcurrent);
+        this.bulkheadWaitMs = bulkheadWaitMs;
+        this.cacheTtlNanos = cacheTtlMs * 1_000_000L;
+        this.validatedTokens = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedUser> eldest) {
+                return size() > cacheMaxEntries;
+            }
+        };
+        this.idTokenParser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        return signingKeys.find(header.getKeyId())
+                                .orElseThrow(() -> new UnsupportedJwtException("Unknown Google signing key " + header.getKeyId()));
+                    }
+                })
+                .clockSkewSeconds(clockSkewSeconds)
+                .build();
+    }
+
+    /**
+     * Validates whichever kind of Google token the mobile app sent.
+     * ID tokens (signed JWTs) are verified locally, anything else is treated as an access token.
+     * @param googleToken Google ID token or access token
+     * @return GoogleUserInfo if the token is valid, null if invalid
+     */
+    public GoogleUserInfo validate(String googleToken) {
+        return isIdToken(googleToken) ? validateIdToken(googleToken) : validateToken(googleToken);
+    }
+
+    // a JWT is three base64url segments and its header always starts with '{"', which encodes to "eyJ"
+    private static boolean isIdToken(String token) {
+        return token != null && token.startsWith("eyJ") && token.chars().filter(c -> c == '.').count() == 2;
     }
 
     /**
-     * Validates Google access token and returns user information
+     * Validates Google access token and returns user information.
+     * The tokeninfo and userinfo calls go out concurrently, each bounded by the request timeout,
+     * and a token that validated recently is answered from the cache without calling Google.
      * @param accessToken Google access token from mobile app
      * @return GoogleUserInfo if token is valid, null if invalid
+     * @throws GoogleAuthUnavailableException if too many validations are already in flight, or Google
+     *         timed out, could not be reached or answered with a server error
      */
     public GoogleUserInfo validateToken(String accessToken) {
         if (accessToken == null || accessToken.trim().isEmpty()) {
@@ -48,19 +141,95 @@ public class GoogleTokenValidatorService {
             return null;
         }
 
+        String digest = TokenDigest.sha256(accessToken);
+        GoogleUserInfo cached = cachedUser(digest);
+        if (cached != null) {
+            return cached;
+        }
+
+        if (!acquireValidationSlot()) {
+            logger.warn("Rejecting Google token validation, too many already in flight");
+            throw new GoogleAuthUnavailableException();
+        }
+        CompletableFuture<HttpResponse<String>> tokenInfo = null;
+        CompletableFuture<HttpResponse<String>> userInfo = null;
         try {
+            tokenInfo = get(tokenInfoUri, accessToken);
+            userInfo = get(userInfoUri, accessToken);
+
             // First, validate the token and get basic info
-            if (!isTokenValid(accessToken)) {
+            long expiresIn = validTokenSeconds(tokenInfo.join());
+            if (expiresIn <= 0) {
                 logger.warn("Token validation failed");
                 return null;
             }
 
             // Then get user information
-            return getUserInfo(accessToken);
-
+            GoogleUserInfo googleUser = getUserInfo(userInfo.join());
+            if (googleUser != null) {
+                cacheUser(digest, googleUser, expiresIn);
+            }
+            return googleUser;
+
+        } catch (CompletionException e) {
+            // a timeout or network failure says nothing about the token, the client should retry rather than sign out
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            logger.error("Network error validating Google token: {}", cause.toString());
+            throw new GoogleAuthUnavailableException("Google sign-in could not be checked right now, try again shortly", cause);
+        } catch (GoogleAuthUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error validating Google token", e);
             return null;
+        } finally {
+            // whichever call is still running is no longer needed, a no-op for completed ones
+            if (tokenInfo != null) {
+                tokenInfo.cancel(true);
+            }
+            if (userInfo != null) {
+                userInfo.cancel(true);
+            }
+            inFlightValidations.release();
+        }
+    }
+
+    private boolean acquireValidationSlot() {
+        try {
+            return inFlightValidations.tryAcquire(bulkheadWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private CompletableFuture<HttpResponse<String>> get(URI endpoint, String accessToken) {
+        URI uri = URI.create(endpoint + "?access_token=" + URLEncoder.encode(accessToken, StandardCharsets.UTF_8));
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .GET()
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private GoogleUserInfo cachedUser(String digest) {
+        synchronized (validatedTokens) {
+            CachedUser cached = validatedTokens.get(digest);
+            if (cached == null) {
+                return null;
+            }
+            if (System.nanoTime() - cached.expiresAt() >= 0) {
+                validatedTokens.remove(digest);
+                return null;
+            }
+            return cached.user();
+        }
+    }
+
+    // never past the token's own expiry
+    private void cacheUser(String digest, GoogleUserInfo googleUser, long expiresInSeconds) {
+        long ttl = Math.min(cacheTtlNanos, TimeUnit.SECONDS.toNanos(expiresInSeconds));
+        synchronized (validatedTokens) {
+            validatedTokens.put(digest, new CachedUser(googleUser, System.nanoTime() + ttl));
         }
     }
 
@@ -73,96 +242,142 @@ public class GoogleTokenValidatorService {
     }
 
     /**
-     * Validates token using Google's tokenInfo endpoint
-     * @param accessToken Google access token
-     * @return true if valid, false otherwise
+     * Checks the response of Google's tokenInfo endpoint
+     * @param response tokeninfo response for the access token
+     * @return seconds until the token expires, 0 if it is invalid
      */
-    private boolean isTokenValid(String accessToken) {
-        try {
-            String url = GOOGLE_TOKEN_INFO_URL + accessToken;
-            String response = restTemplate.getForObject(url, String.class);
+    private long validTokenSeconds(HttpResponse<String> response) throws IOException {
+        checkAvailable(response);
+        // Parse the response
+        JsonNode jsonResponse = objectMapper.readTree(response.body());
+
+        // Check if there's an error
+        if (jsonResponse.has("error")) {
+            logger.warn("Google token validation error: {}", jsonResponse.get("error").asText());
+            return 0;
+        }
+        if (response.statusCode() != 200) {
+            logger.warn("Google token validation returned status {}", response.statusCode());
+            return 0;
+        }
 
-            if (response == null) {
-                logger.warn("No response from Google token validation");
-                return false;
+        // Validate audience (client_id) - security check
+        if (jsonResponse.has("audience")) {
+            String audience = jsonResponse.get("audience").asText();
+            if (!isValidAudience(audience)) {
+                logger.warn("Token audience mismatch. Expected: {} or {}, Got: {}", webClientId,androidClientId, audience);
+                return 0;
             }
+        }
 
-            // Parse the response
-            JsonNode jsonResponse = objectMapper.readTree(response);
-
-            // Check if there's an error
-            if (jsonResponse.has("error")) {
-                logger.warn("Google token validation error: {}", jsonResponse.get("error").asText());
-                return false;
+        // Check token expiration
+        long expiresIn = Long.MAX_VALUE;
+        if (jsonResponse.has("expires_in")) {
+            expiresIn = jsonResponse.get("expires_in").asLong();
+            if (expiresIn <= 0) {
+                logger.warn("Google token has expired");
+                return 0;
             }
+        }
 
-            // Validate audience (client_id) - security check
-            if (jsonResponse.has("audience")) {
-                String audience = jsonResponse.get("audience").asText();
-                if (!isValidAudience(audience)) {
-                    logger.warn("Token audience mismatch. Expected: {} or {}, Got: {}", webClientId,androidClientId, audience);
-                    return false;
-                }
-            }
+        logger.info("Google token validation successful");
+        return expiresIn;
+    }
 
-            // Check token expiration
-            if (jsonResponse.has("expires_in")) {
-                int expiresIn = jsonResponse.get("expires_in").asInt();
-                if (expiresIn <= 0) {
-                    logger.warn("Google token has expired");
-                    return false;
-                }
-            }
+    // a 5xx is Google failing, not the token being invalid
+    private static void checkAvailable(HttpResponse<String> response) {
+        if (response.statusCode() >= 500) {
+            throw new GoogleAuthUnavailableException("Google sign-in could not be checked right now, try again shortly",
+                    new IOException("Google answered with status " + response.statusCode()));
+        }
+    }
+
+    /**
+     * Reads user information from Google's userinfo response
+     * @param response userinfo response for a valid access token
+     * @return GoogleUserInfo with user details
+     */
+    private GoogleUserInfo getUserInfo(HttpResponse<String> response) throws IOException {
+        checkAvailable(response);
+        // Parse user information
+        JsonNode jsonResponse = objectMapper.readTree(response.body());
+
+        // Check for error
+        if (jsonResponse.has("error")) {
+            logger.warn("Google userinfo error: {}", jsonResponse.get("error").asText());
+            return null;
+        }
+        if (response.statusCode() != 200) {
+            logger.warn("Google userinfo returned status {}", response.statusCode());
+            return null;
+        }
 
-            logger.info("Google token validation successful");
-            return true;
+        // Extract user information
+        GoogleUserInfo userInfo = new GoogleUserInfo();
+        userInfo.setSub(jsonResponse.has("id") ? jsonResponse.get("id").asText() : null);
+        userInfo.setEmail(jsonResponse.has("email") ? jsonResponse.get("email").asText() : null);
+        userInfo.setName(jsonResponse.has("name") ? jsonResponse.get("name").asText() : null);
+        userInfo.setPicture(jsonResponse.has("picture") ? jsonResponse.get("picture").asText() : null);
+        userInfo.setEmailVerified(jsonResponse.has("verified_email") && jsonResponse.get("verified_email").asBoolean());
+        userInfo.setGivenName(jsonResponse.has("given_name") ? jsonResponse.get("given_name").asText() : null);
+        userInfo.setFamilyName(jsonResponse.has("family_name") ? jsonResponse.get("family_name").asText() : null);
+
+        // Validate required fields
+        if (userInfo.getSub() == null || userInfo.getEmail() == null) {
+            logger.warn("Missing required user information from Google");
+            return null;
+        }
 
-        } catch (RestClientException e) {
-            logger.error("Network error validating Google token", e);
-            return false;
-        } catch (Exception e) {
-            logger.error("Error parsing Google token validation response", e);
-            return false;
+        // Security check: ensure email is verified
+        if (!userInfo.isEmailVerified()) {
+            logger.warn("Google account email is not verified: {}", userInfo.getEmail());
+            return null;
         }
+
+        logger.info("Successfully retrieved user info for: {}", userInfo.getEmail());
+        return userInfo;
     }
 
     /**
-     * Gets user information from Google using the access token
-     * @param accessToken Valid Google access token
-     * @return GoogleUserInfo with user details
+     * Validates a Google ID token locally: RS256 signature against Google's published keys,
+     * issuer, audience (web or android client id) and expiry
+     * @param idToken Google ID token (JWT)
+     * @return GoogleUserInfo if valid, null if invalid
      */
-    private GoogleUserInfo getUserInfo(String accessToken) {
+    public GoogleUserInfo validateIdToken(String idToken) {
+        if (idToken == null || idToken.trim().isEmpty()) {
+            logger.warn("Empty or null ID token provided");
+            return null;
+        }
+
         try {
-            String url = GOOGLE_USERINFO_URL + accessToken;
-            String response = restTemplate.getForObject(url, String.class);
+            Claims claims = idTokenParser.parseSignedClaims(idToken).getPayload();
 
-            if (response == null) {
-                logger.warn("No response from Google userinfo endpoint");
+            if (!GOOGLE_ISSUERS.contains(claims.getIssuer())) {
+                logger.warn("ID token issuer is not Google: {}", claims.getIssuer());
                 return null;
             }
 
-            // Parse user information
-            JsonNode jsonResponse = objectMapper.readTree(response);
-
-            // Check for error
-            if (jsonResponse.has("error")) {
-                logger.warn("Google userinfo error: {}", jsonResponse.get("error").asText());
+            Set<String> audience = claims.getAudience();
+            if (audience == null || audience.stream().noneMatch(this::isValidAudience)) {
+                logger.warn("ID token audience mismatch. Expected: {} or {}, Got: {}", webClientId, androidClientId, audience);
                 return null;
             }
 
-            // Extract user information
             GoogleUserInfo userInfo = new GoogleUserInfo();
-            userInfo.setSub(jsonResponse.has("id") ? jsonResponse.get("id").asText() : null);
-            userInfo.setEmail(jsonResponse.has("email") ? jsonResponse.get("email").asText() : null);
-            userInfo.setName(jsonResponse.has("name") ? jsonResponse.get("name").asText() : null);
-            userInfo.setPicture(jsonResponse.has("picture") ? jsonResponse.get("picture").asText() : null);
-            userInfo.setEmailVerified(jsonResponse.has("verified_email") && jsonResponse.get("verified_email").asBoolean());
-            userInfo.setGivenName(jsonResponse.has("given_name") ? jsonResponse.get("given_name").asText() : null);
-            userInfo.setFamilyName(jsonResponse.has("family_name") ? jsonResponse.get("family_name").asText() : null);
+            userInfo.setSub(claims.getSubject());
+            userInfo.setEmail(claims.get("email", String.class));
+            userInfo.setName(claims.get("name", String.class));
+            userInfo.setPicture(claims.get("picture", String.class));
+            // a boolean in ID tokens, though older tokens carried the string "true"
+            Object emailVerified = claims.get("email_verified");
+            userInfo.setEmailVerified(Boolean.TRUE.equals(emailVerified) || "true".equals(emailVerified));
+            userInfo.setGivenName(claims.get("given_name", String.class));
+            userInfo.setFamilyName(claims.get("family_name", String.class));
 
             // Validate required fields
             if (userInfo.getSub() == null || userInfo.getEmail() == null) {
-                logger.warn("Missing required user information from Google");
+                logger.warn("Missing required user information in Google ID token");
                 return null;
             }
 
@@ -172,33 +387,15 @@ public class GoogleTokenValidatorService {
                 return null;
             }
 
-            logger.info("Successfully retrieved user info for: {}", userInfo.getEmail());
+            logger.info("Google ID token validation successful for: {}", userInfo.getEmail());
             return userInfo;
 
-        } catch (RestClientException e) {
-            logger.error("Network error getting Google user info", e);
-            return null;
-        } catch (Exception e) {
-            logger.error("Error parsing Google userinfo response", e);
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.warn("Google ID token validation failed: {}", e.getMessage());
             return null;
         }
     }
 
-    /**
-     * Alternative method: Validate ID token (if mobile apps send ID tokens instead)
-     * This is more secure as ID tokens contain signed claims
-     * @param idToken Google ID token (JWT)
-     * @return GoogleUserInfo if valid, null if invalid
-     */
-    public GoogleUserInfo validateIdToken(String idToken) {
-        // This would require additional JWT parsing library
-        // For now, we're using access tokens which is simpler
-        // but ID tokens are more secure for this use case
-
-        logger.warn("ID token validation not implemented yet - use access token validation");
-        return null;
-    }
-
     /**
      * Refresh token validation (if needed in the future)
      * @param refreshToken Google refresh token
@@ -210,4 +407,7 @@ public class GoogleTokenValidatorService {
         logger.warn("Refresh token functionality not implemented");
         return null;
     }
+
+    private record CachedUser(GoogleUserInfo user, long expiresAt) {
+    }
 }
\ No newline at end of file
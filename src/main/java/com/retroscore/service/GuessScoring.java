@@ -0,0 +1,127 @@
+package com.retroscore.service;
+
+import com.retroscore.dto.UserGameResponse;
+import com.retroscore.dto.UserGuessDto;
+import com.retroscore.entity.UserGame;
+import com.retroscore.enums.GameResult;
+import com.retroscore.enums.MatchResult;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Scoring rules for a guess, shared by the synchronous and the write-behind guess paths.
+ * Works on plain scores so callers can score against an entity or the in-memory catalog.
+ */
+final class GuessScoring {
+
+    private static final Logger logger = LoggerFactory.getLogger(GuessScoring.class);
+
+    private GuessScoring() {
+    }
+
+    // fills the predicted scores and correctness flags of a new game from the user's guess
+    static void applyGuess(UserGame userGame, UserGuessDto userGuess, Integer actualHomeScore, Integer actualAwayScore) {
+        if(Boolean.TRUE.equals(userGuess.getIsEasyMode())){
+            logger.info("This is the entry for easy mode play with a match result ={}", userGuess);
+            userGame.setPredictedHomeScore(null);
+            userGame.setPredictedAwayScore(null);
+            userGame.setIsCorrectScore(false);
+
+            MatchResult userSubmittedResult =  userGuess.getMatchResult();
+            MatchResult actualMatchResult = matchResult(actualHomeScore, actualAwayScore);
+
+            userGame.setIsCorrectResult(actualMatchResult == userSubmittedResult);
+        }else {
+            logger.info("This is the entry for hard mode play with no match result ={}", userGuess);
+            userGame.setPredictedHomeScore(userGuess.getPredictedHomeScore());
+            userGame.setPredictedAwayScore(userGuess.getPredictedAwayScore());
+            //calculate other user game results
+            calculateGameResult(userGame, actualHomeScore, actualAwayScore);
+        }
+    }
+
+    private static void calculateGameResult(UserGame userGame, Integer actualHomeScore, Integer actualAwayScore){
+        Integer predictedHomeScore = userGame.getPredictedHomeScore();
+        Integer predictedAwayScore = userGame.getPredictedAwayScore();
+
+        boolean isCorrectScore = actualHomeScore.equals(predictedHomeScore) && actualAwayScore.equals(predictedAwayScore);
+        userGame.setIsCorrectScore(isCorrectScore);
+
+
+        boolean isCorrectResult = isCorrectScore || (actualHomeScore.compareTo(actualAwayScore) == predictedHomeScore.compareTo(predictedAwayScore));
+        userGame.setIsCorrectResult(isCorrectResult);
+
+    }
+
+    static MatchResult matchResult(Integer homeScore, Integer awayScore) {
+        int comparison = homeScore.compareTo(awayScore);
+        if (comparison > 0) {
+            return MatchResult.HOME_WIN;
+        } else if (comparison < 0) {
+            return MatchResult.AWAY_WIN;
+        } else {
+            return MatchResult.DRAW;
+        }
+    }
+
+    static GameResult gameResult(UserGame userGame){
+
+        if(userGame.getIsCorrectScore()){
+            return  GameResult.EXACT_SCORE;
+        } else if (userGame.getIsCorrectResult()){
+            return GameResult.CORRECT_RESULT;
+        } else {
+          return  GameResult.INCORRECT;
+        }
+    }
+
+    // the insert hit the unique (user_id, match_id) constraint, the user already played the match
+    // Postgres names the constraint, H2 the index backing it (PUBLIC.UK_USER_GAMES_USER_MATCH_INDEX_A)
+    static boolean isUserMatchConflict(DataIntegrityViolationException e) {
+        return e.getCause() instanceof ConstraintViolationException violation
+                && violation.getConstraintName() != null
+                && violation.getConstraintName().toLowerCase(Locale.ROOT).contains(UserGame.USER_MATCH_CONSTRAINT);
+    }
+
+    // user failed to submit a guess in time, nothing is recorded
+    static UserGameResponse timeUpResponse(Long matchId, String matchTitle, Integer actualHomeScore, Integer actualAwayScore) {
+        return UserGameResponse.builder()
+                .matchId(matchId)
+                .matchTitle(matchTitle)
+                .actualHomeScore(actualHomeScore)
+                .actualAwayScore(actualAwayScore)
+                .isCorrectScore(false)
+                .isCorrectResult(false)
+                .gameResult(GameResult.INCORRECT)
+                .playedAt(LocalDateTime.now())
+                .resultMessage(GameResult.TIMEUP.getMessage())
+                .userGamePoints(GameResult.TIMEUP.getPoints())
+                .actualMatchResult(matchResult(actualHomeScore, actualAwayScore))
+                .build();
+    }
+
+    static UserGameResponse buildResponse(UserGame userGame, Long matchId, String matchTitle, Integer actualHomeScore, Integer actualAwayScore){
+        GameResult resultMessage = gameResult(userGame);
+        return UserGameResponse.builder()
+                .userGameId(userGame.getId())
+                .matchId(matchId)
+                .matchTitle(matchTitle)
+                .predictedHomeScore(userGame.getPredictedHomeScore())
+                .predictedAwayScore(userGame.getPredictedAwayScore())
+                .actualHomeScore(actualHomeScore)
+                .actualAwayScore(actualAwayScore)
+                .isCorrectScore(userGame.getIsCorrectScore())
+                .isCorrectResult(userGame.getIsCorrectResult())
+                .gameResult(userGame.getGameResult())
+                .playedAt(userGame.getPlayedAt())
+                .resultMessage(resultMessage.getMessage())
+                .userGamePoints(resultMessage.getPoints())
+                .actualMatchResult(matchResult(actualHomeScore, actualAwayScore))
+                .build();
+    }
+}
@@ -0,0 +1,373 @@
+package com.retroscore.service;
+
+import com.retroscore.dto.UserGameResponse;
+import com.retroscore.dto.UserGuessDto;
+import com.retroscore.entity.Match;
+import com.retroscore.entity.User;
+import com.retroscore.entity.UserGame;
+import com.retroscore.enums.GameResult;
+import com.retroscore.event.GuessScoredEvent;
+import com.retroscore.exception.GuessQueueFullException;
+import com.retroscore.exception.MatchNotFoundException;
+import com.retroscore.exception.UserAlreadyPlayedException;
+import com.retroscore.repository.MatchRepository;
+import com.retroscore.repository.UserGameRepository;
+import com.retroscore.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional write-behind mode for guesses ({@code game.guess.write-behind.enabled}).
+ * A guess is scored against the in-memory {@link MatchCatalog}, checked against the user's
+ * play history and answered right away; the game row and the stats delta go onto a bounded
+ * queue that a single writer thread drains into the database in JDBC batches.
+ * When the queue stays full for {@code offer-timeout-ms} the guess is rejected with a 503,
+ * and whatever is still queued is flushed when the application shuts down.
+ * A guess that fails to write is retried with backoff for as long as the application runs;
+ * it is only dropped when the user turns out to have played the match already, when the
+ * database keeps rejecting the row itself for {@code max-attempts} tries, or on shutdown.
+ */
+@Service
+public class GuessWriteBehindService implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(GuessWriteBehindService.class);
+
+    private final MatchCatalog matchCatalog;
+    private final PlayHistoryCache playHistoryCache;
+    private final UserGameRepository userGameRepository;
+    private final UserRepository userRepository;
+    private final MatchRepository matchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final int maxAttempts;
+    private final long maxBackoffMs;
+    private final BlockingQueue<PendingGuess> queue;
+
+    private final Timer flushTimer;
+    private final Counter rejectedGuesses;
+    private final MeterRegistry meterRegistry;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public GuessWriteBehindService(MatchCatalog matchCatalog,
+                                   PlayHistoryCache playHistoryCache,
+                                   UserGameRepository userGameRepository,
+                                   UserRepository userRepository,
+                                   MatchRepository matchRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   ApplicationEventPublisher eventPublisher,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${game.guess.write-behind.enabled:false}") boolean enabled,
+                                   @Value("${game.guess.write-behind.queue-capacity:10000}") int queueCapacity,
+                                   @Value("${game.guess.write-behind.batch-size:200}") int batchSize,
+                                   @Value("${game.guess.write-behind.flush-interval-ms:200}") long flushIntervalMs,
+                                   @Value("${game.guess.write-behind.offer-timeout-ms:50}") long offerTimeoutMs,
+                                   @Value("${game.guess.write-behind.max-attempts:10}") int maxAttempts,
+                                   @Value("${game.guess.write-behind.max-backoff-ms:30000}") long maxBackoffMs) {
+        this.matchCatalog = matchCatalog;
+        this.playHistoryCache = playHistoryCache;
+        this.userGameRepository = userGameRepository;
+        this.userRepository = userRepository;
+        this.matchRepository = matchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.maxAttempts = maxAttempts;
+        this.maxBackoffMs = maxBackoffMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("game.guess.write_behind.queue.depth", queue, BlockingQueue::size)
+                .description("Guesses waiting to be written")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("game.guess.write_behind.flush")
+                .description("Time to write one batch of guesses")
+                .register(meterRegistry);
+        this.rejectedGuesses = Counter.builder("game.guess.write_behind.rejected")
+                .description("Guesses rejected because the queue was full")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public UserGameResponse submitGuess(Long userId, UserGuessDto userGuess) {
+        MatchCatalog.CatalogMatch match = matchCatalog.findMatch(userGuess.getMatchId())
+                .orElseThrow(() -> new MatchNotFoundException(userGuess.getMatchId()));
+
+        // user failed to submit a guess in time, we don't record it as a user game
+        if (Boolean.TRUE.equals(userGuess.getTimeIsUp())) {
+            return GuessScoring.timeUpResponse(match.matchId(), match.matchTitle(), match.homeScore(), match.awayScore());
+        }
+
+        UserGame userGame = new UserGame();
+        userGame.setPlayedAt(LocalDateTime.now());
+        GuessScoring.applyGuess(userGame, userGuess, match.homeScore(), match.awayScore());
+
+        // the play history stands in for the unique constraint until the row is written,
+        // pinned so it is not evicted and reloaded without the queued guess
+        PlayHistoryCache.PlayHistory playHistory = playHistoryCache.pin(userId);
+        if (!playHistory.recordIfAbsent(match.matchId(), userGame.getIsCorrectScore())) {
+            playHistoryCache.unpin(userId);
+            throw new UserAlreadyPlayedException(userId, match.matchId());
+        }
+
+        if (!offer(PendingGuess.of(userId, match, userGame))) {
+            playHistory.forget(match.matchId());
+            playHistoryCache.unpin(userId);
+            rejectedGuesses.increment();
+            throw new GuessQueueFullException();
+        }
+
+        // the game id is not known until the writer has flushed it
+        return GuessScoring.buildResponse(userGame, match.matchId(), match.matchTitle(), match.homeScore(), match.awayScore());
+    }
+
+    private boolean offer(PendingGuess guess) {
+        try {
+            return queue.offer(guess, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void drainLoop() {
+        List<PendingGuess> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingGuess first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Guess writer failed to flush {} guesses", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingGuess> batch) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeBatch(batch));
+            batch.forEach(this::written);
+        } catch (RuntimeException e) {
+            // retry one by one so a single bad guess does not hold back the rest
+            logger.warn("Batch of {} guesses failed, retrying individually: {}", batch.size(), e.getMessage());
+            batch.forEach(this::writeWithRetry);
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void writeWithRetry(PendingGuess guess) {
+        long backoffMs = Math.min(flushIntervalMs, maxBackoffMs);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> writeBatch(List.of(guess)));
+                written(guess);
+                return;
+            } catch (DataIntegrityViolationException e) {
+                if (GuessScoring.isUserMatchConflict(e)) {
+                    // the row is already there, so the play history is right to keep the match
+                    drop(guess, "duplicate", false, e);
+                    return;
+                }
+                // rejected by the database itself, e.g. the user was deleted meanwhile
+                if (attempt >= maxAttempts) {
+                    drop(guess, "rejected", true, e);
+                    return;
+                }
+            } catch (RuntimeException e) {
+                // connection loss, pool exhaustion, database restart: keep trying while we run
+                if (!running && attempt >= maxAttempts) {
+                    drop(guess, "shutdown", true, e);
+                    return;
+                }
+                logger.warn("Writing guess of user {} for match {} failed (attempt {}), retrying in {} ms: {}",
+                        guess.userId(), guess.matchId(), attempt, backoffMs, e.getMessage());
+            }
+            sleep(backoffMs);
+            backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void written(PendingGuess guess) {
+        playHistoryCache.unpin(guess.userId());
+        publishScored(guess);
+    }
+
+    private void drop(PendingGuess guess, String reason, boolean forget, RuntimeException cause) {
+        logger.error("Dropping guess of user {} for match {} ({}): {}", guess.userId(), guess.matchId(), reason, cause.getMessage());
+        if (forget) {
+            // the user can play the match again, the guess never counted
+            playHistoryCache.forget(guess.userId(), guess.matchId());
+        }
+        playHistoryCache.unpin(guess.userId());
+        Counter.builder("game.guess.write_behind.dropped")
+                .description("Accepted guesses that were never written")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void writeBatch(List<PendingGuess> batch) {
+        Map<Long, StatsDelta> deltas = new HashMap<>();
+        for (PendingGuess guess : batch) {
+            UserGame userGame = guess.toUserGame(userRepository.getReferenceById(guess.userId()),
+                    matchRepository.getReferenceById(guess.matchId()));
+            userGameRepository.save(userGame);
+            deltas.computeIfAbsent(guess.userId(), userId -> new StatsDelta()).add(guess.gameResult());
+        }
+        userGameRepository.flush();
+        deltas.forEach((userId, delta) -> userRepository.incrementGameStats(userId, delta.games,
+                delta.exactScores, delta.correctResults, delta.incorrectGuesses, delta.points));
+    }
+
+    private void publishScored(PendingGuess guess) {
+        MatchCatalog.CatalogMatch match = guess.match();
+        eventPublisher.publishEvent(new GuessScoredEvent(guess.userId(), match.matchId(), match.seasonId(),
+                match.homeTeamId(), match.awayTeamId(), guess.gameResult(), guess.playedAt()));
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drainLoop, "guess-writer");
+        writer.start();
+        logger.info("Write-behind guess recording enabled, queue capacity {}", queue.remainingCapacity());
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // the web server has stopped taking requests by now, write out whatever is left
+        List<PendingGuess> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+            batch.clear();
+        }
+        logger.info("Guess writer stopped, queue flushed");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // stop after the web server (which stops at DEFAULT_PHASE - 2048) so no guess arrives after the final flush
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private record PendingGuess(Long userId, MatchCatalog.CatalogMatch match, Integer predictedHomeScore,
+                                Integer predictedAwayScore, Boolean correctScore, Boolean correctResult,
+                                LocalDateTime playedAt) {
+
+        static PendingGuess of(Long userId, MatchCatalog.CatalogMatch match, UserGame userGame) {
+            return new PendingGuess(userId, match, userGame.getPredictedHomeScore(), userGame.getPredictedAwayScore(),
+                    userGame.getIsCorrectScore(), userGame.getIsCorrectResult(), userGame.getPlayedAt());
+        }
+
+        Long matchId() {
+            return match.matchId();
+        }
+
+        GameResult gameResult() {
+            if (Boolean.TRUE.equals(correctScore)) {
+                return GameResult.EXACT_SCORE;
+            }
+            return Boolean.TRUE.equals(correctResult) ? GameResult.CORRECT_RESULT : GameResult.INCORRECT;
+        }
+
+        // a fresh entity per attempt, a failed batch leaves its entities unusable
+        UserGame toUserGame(User user, Match match) {
+            UserGame userGame = new UserGame();
+            userGame.setUser(user);
+            userGame.setMatch(match);
+            userGame.setPredictedHomeScore(predictedHomeScore);
+            userGame.setPredictedAwayScore(predictedAwayScore);
+            userGame.setIsCorrectScore(correctScore);
+            userGame.setIsCorrectResult(correctResult);
+            userGame.setPlayedAt(playedAt);
+            return userGame;
+        }
+    }
+
+    private static final class StatsDelta {
+        int games;
+        int exactScores;
+        int correctResults;
+        int incorrectGuesses;
+        int points;
+
+        void add(GameResult gameResult) {
+            games++;
+            points += gameResult.getPoints();
+            switch (gameResult) {
+                case EXACT_SCORE -> exactScores++;
+                case CORRECT_RESULT -> correctResults++;
+                default -> incorrectGuesses++;
+            }
+        }
+    }
+}
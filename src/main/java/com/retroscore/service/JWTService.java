@@ -2,8 +2,11 @@ package com.retroscore.service;
 
 import com.retroscore.entity.User;
 import com.retroscore.repository.UserRepository;
+import com.retroscore.security.VerifiedToken;
+import com.retroscore.util.TokenDigest;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.stereotype.Service;
@@ -14,6 +17,7 @@ import java.util.function.Function;
 @Service
 public class JWTService {
     private final UserRepository userRepository;
+    private final TokenRevocationService tokenRevocationService;
 
     @Value("${jwt.secret}")
     private String jwtSecret;
@@ -24,8 +28,32 @@ public class JWTService {
     @Value("${jwt.refresh-expiration}")
     private long refreshExpirationInMs;
 
-    public JWTService(UserRepository userRepository) {
+    // built once from jwt.secret, parsing a token no longer re-decodes the key
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // SHA-256 of a token to its verified claims, so repeat requests with the same token skip the HMAC check
+    private final Map<String, VerifiedToken> verifiedTokens;
+
+    public JWTService(UserRepository userRepository,
+                      TokenRevocationService tokenRevocationService,
+                      @Value("${jwt.verified-cache.max-entries:10000}") int maxVerifiedTokens) {
         this.userRepository = userRepository;
+        this.tokenRevocationService = tokenRevocationService;
+        this.verifiedTokens = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+                return size() > maxVerifiedTokens;
+            }
+        };
+    }
+
+    @PostConstruct
+    void initSigningKey() {
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
     }
 
     public String generateToken(User user){
@@ -38,39 +66,34 @@ public class JWTService {
     private String createToken(Map<String, Object> claims, String subject){
         return Jwts.builder()
                 .claims(claims)
+                .id(UUID.randomUUID().toString())
                 .subject(subject)
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis()+jwtExpirationInMs))
-                .signWith(getSignInKey())
+                .signWith(signingKey)
                 .compact();
     }
 
-    private SecretKey getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
-
     public String generateRefreshToken(User user){
         Map<String, Object> claims = new HashMap<>();
         claims.put("tokenType", "refresh");
 
         return  Jwts.builder()
                 .claims(claims)
+                .id(UUID.randomUUID().toString())
                 .subject(user.getId().toString())
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis()+ refreshExpirationInMs))
-                .signWith(getSignInKey())
+                .signWith(signingKey)
                 .compact();
     }
 
 
     public Boolean validateToken(String token){
         try{
-            Jwts.parser()
-                    .verifyWith(getSignInKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return !isTokenExpired(token);
+            // verify rejects expired tokens, one parse covers both checks
+            verify(token);
+            return true;
         } catch (MalformedJwtException e){
             System.err.println("Invalid JWT token: "+ e.getMessage());
         } catch (ExpiredJwtException e){
@@ -79,6 +102,8 @@ public class JWTService {
             System.err.println("Jwt token is unsupported :" + e.getMessage());
         } catch (IllegalArgumentException e){
             System.err.println("Jwt claims string is empty: "+ e.getMessage());
+        } catch (JwtException e){
+            System.err.println("Jwt token is rejected: "+ e.getMessage());
         }
         return false;
     }
@@ -106,12 +131,57 @@ public class JWTService {
     }
 
     public Claims getAllClaimsFromToken(String token){
-        return Jwts.parser()
-                .verifyWith(getSignInKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return verify(token).claims();
     }
+
+    /**
+     * Checks the token's signature, expiry and revocation and returns its claims, parsing each
+     * distinct token only once while it stays in the cache.
+     * Throws the same JwtExceptions as parsing, {@link ExpiredJwtException} once the token expired
+     * and a plain {@link JwtException} once it was revoked.
+     */
+    public VerifiedToken verify(String token){
+        String digest = TokenDigest.sha256(token);
+        VerifiedToken cached;
+        synchronized (verifiedTokens) {
+            cached = verifiedTokens.get(digest);
+        }
+        if (cached != null) {
+            if (!cached.isExpired()) {
+                return notRevoked(cached);
+            }
+            synchronized (verifiedTokens) {
+                verifiedTokens.remove(digest);
+            }
+            throw new ExpiredJwtException(null, cached.claims(), "JWT expired at " + cached.expiration());
+        }
+
+        VerifiedToken verified = new VerifiedToken(parser.parseSignedClaims(token).getPayload());
+        synchronized (verifiedTokens) {
+            verifiedTokens.put(digest, verified);
+        }
+        return notRevoked(verified);
+    }
+
+    // checked on cache hits too, a token revoked after it was cached must stop working
+    private VerifiedToken notRevoked(VerifiedToken verified){
+        if (tokenRevocationService.isRevoked(verified.id())) {
+            throw new JwtException("JWT has been revoked");
+        }
+        return verified;
+    }
+
+    /**
+     * Like {@link #verify} but empty instead of throwing for invalid or expired tokens.
+     */
+    public Optional<VerifiedToken> verifyIfValid(String token){
+        try {
+            return Optional.of(verify(token));
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
     public Boolean isTokenExpired(String token){
         final Date expiration = getExpirationDateFromToken(token);
         return expiration.before(new Date());
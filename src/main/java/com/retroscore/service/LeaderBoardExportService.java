@@ -0,0 +1,200 @@
+package com.retroscore.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retroscore.exception.InvalidExportFormatException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Streams the whole ranked user list in leaderboard order as NDJSON or CSV.
+ * Rows come from a forward-only cursor with a fixed fetch size (Postgres only honours the
+ * fetch size inside a transaction) and are written and flushed as they arrive, so memory
+ * stays flat however many users there are.
+ */
+@Service
+public class LeaderBoardExportService {
+
+    private static final String EXPORT_SQL = "SELECT id, username, total_points, games_played, games_won, created_at " +
+            "FROM users ORDER BY total_points DESC, created_at ASC NULLS LAST, id ASC";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public LeaderBoardExportService(DataSource dataSource,
+                                    PlatformTransactionManager transactionManager,
+                                    ObjectMapper objectMapper,
+                                    @Value("${game.leaderboard.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    public enum Format {
+        NDJSON, CSV;
+
+        // case-insensitive name from the request, unknown names are a bad request rather than a server error
+        public static Format parse(String format) {
+            for (Format value : values()) {
+                if (value.name().equalsIgnoreCase(format)) {
+                    return value;
+                }
+            }
+            throw new InvalidExportFormatException(format);
+        }
+    }
+
+    public void export(Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        RowWriter rowWriter = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+        rowWriter.start();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(EXPORT_SQL, new RankingHandler(rowWriter)));
+        } catch (UncheckedIOException e) {
+            // usually the client went away, nothing left to write to
+            throw e.getCause();
+        }
+        rowWriter.finish();
+    }
+
+    // numbers rows as it goes: position is the place in the list, rank is shared by tied points
+    private final class RankingHandler implements RowCallbackHandler {
+        private final RowWriter rowWriter;
+        private long position;
+        private long rank;
+        private int previousPoints = -1;
+
+        RankingHandler(RowWriter rowWriter) {
+            this.rowWriter = rowWriter;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            position++;
+            int points = rs.getInt("total_points");
+            if (points != previousPoints) {
+                rank = position;
+                previousPoints = points;
+            }
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            try {
+                rowWriter.write(position, rank, rs.getLong("id"), rs.getString("username"), points,
+                        rs.getInt("games_played"), rs.getInt("games_won"),
+                        createdAt == null ? null : createdAt.toLocalDateTime().toString());
+                if (position % fetchSize == 0) {
+                    rowWriter.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private interface RowWriter {
+        void start() throws IOException;
+
+        void write(long position, long rank, long userId, String username, int totalPoints,
+                   int gamesPlayed, int gamesWon, String createdAt) throws IOException;
+
+        void flush() throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(Writer writer) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(writer);
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void write(long position, long rank, long userId, String username, int totalPoints,
+                          int gamesPlayed, int gamesWon, String createdAt) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("position", position);
+            generator.writeNumberField("rank", rank);
+            generator.writeNumberField("userId", userId);
+            generator.writeStringField("username", username);
+            generator.writeNumberField("totalPoints", totalPoints);
+            generator.writeNumberField("gamesPlayed", gamesPlayed);
+            generator.writeNumberField("gamesWon", gamesWon);
+            generator.writeStringField("createdAt", createdAt);
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.close();
+        }
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void start() throws IOException {
+            writer.write("position,rank,userId,username,totalPoints,gamesPlayed,gamesWon,createdAt\n");
+        }
+
+        @Override
+        public void write(long position, long rank, long userId, String username, int totalPoints,
+                          int gamesPlayed, int gamesWon, String createdAt) throws IOException {
+            writer.write(position + "," + rank + "," + userId + "," + quote(username) + "," + totalPoints + ","
+                    + gamesPlayed + "," + gamesWon + "," + (createdAt == null ? "" : createdAt) + "\n");
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        private static String quote(String value) {
+            if (value == null) {
+                return "";
+            }
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+    }
+}
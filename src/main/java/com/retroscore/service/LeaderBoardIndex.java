@@ -0,0 +1,283 @@
+package com.retroscore.service;
+
+import com.retroscore.enums.GameResult;
+import com.retroscore.event.GuessScoredEvent;
+import com.retroscore.repository.UserRepository;
+import com.retroscore.util.OrderStatisticTree;
+import com.retroscore.util.PointsHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory ranking of every user by (total points desc, joined asc, id asc), the order the
+ * public leaderboard uses. Pages, ranks and the user count are answered in O(log n) from an
+ * {@link OrderStatisticTree}, and rank or percentile for a points total from a {@link PointsHistogram};
+ * scored guesses are applied as they are written and the whole
+ * index is rebuilt from the users table before the web server starts and every
+ * {@code game.leaderboard.rebuild-interval-ms}, which also picks up newly registered users.
+ */
+@Service
+public class LeaderBoardIndex implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaderBoardIndex.class);
+
+    static final Comparator<RankedUser> RANKING = Comparator.comparingInt(RankedUser::totalPoints).reversed()
+            .thenComparing(RankedUser::createdAt, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingLong(RankedUser::userId);
+
+    private final UserRepository userRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildMonitor = new Object();
+
+    private Map<Long, RankedUser> users = new HashMap<>();
+    private OrderStatisticTree<RankedUser> ranking = new OrderStatisticTree<>(RANKING);
+    private PointsHistogram histogram = new PointsHistogram();
+    // users touched while a rebuild is reading the table, re-read before the rebuilt index goes live
+    private Set<Long> changedDuringRebuild;
+
+    public LeaderBoardIndex(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    // built before the web server starts, so no request ever sees an empty board or reads as rank 1
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${game.leaderboard.rebuild-interval-ms:600000}",
+            fixedDelayString = "${game.leaderboard.rebuild-interval-ms:600000}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    // first, listeners such as LeaderBoardStreamService read the index after the guess is applied
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGuessScored(GuessScoredEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(event.userId());
+            }
+            RankedUser current = users.get(event.userId());
+            if (current != null) {
+                replace(current, current.withGuess(event));
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // not indexed yet (registered since the last rebuild), its row already includes this guess
+        loadMissing(event.userId());
+    }
+
+    // adds a user that is not in the index yet from its current row
+    private void loadMissing(Long userId) {
+        List<Object[]> rows = userRepository.findLeaderBoardRowsByIdIn(List.of(userId));
+        lock.writeLock().lock();
+        try {
+            for (Object[] row : rows) {
+                RankedUser loaded = RankedUser.of(row);
+                if (!users.containsKey(loaded.userId())) {
+                    users.put(loaded.userId(), loaded);
+                    ranking.add(loaded);
+                    histogram.add(loaded.totalPoints());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void rebuild() {
+        synchronized (rebuildMonitor) {
+            setChangedDuringRebuild(new HashSet<>());
+            try {
+                List<Object[]> rows = userRepository.findLeaderBoardRows();
+                Map<Long, RankedUser> rebuiltUsers = new HashMap<>(rows.size() * 2);
+                OrderStatisticTree<RankedUser> rebuiltRanking = new OrderStatisticTree<>(RANKING);
+                PointsHistogram rebuiltHistogram = new PointsHistogram();
+                for (Object[] row : rows) {
+                    RankedUser user = RankedUser.of(row);
+                    rebuiltUsers.put(user.userId(), user);
+                    rebuiltRanking.add(user);
+                    rebuiltHistogram.add(user.totalPoints());
+                }
+
+                lock.writeLock().lock();
+                try {
+                    // the table read may have missed guesses applied meanwhile, take those users' rows again
+                    if (!changedDuringRebuild.isEmpty()) {
+                        for (Object[] row : userRepository.findLeaderBoardRowsByIdIn(changedDuringRebuild)) {
+                            RankedUser fresh = RankedUser.of(row);
+                            RankedUser stale = rebuiltUsers.put(fresh.userId(), fresh);
+                            if (stale != null) {
+                                rebuiltRanking.remove(stale);
+                                rebuiltHistogram.remove(stale.totalPoints());
+                            }
+                            rebuiltRanking.add(fresh);
+                            rebuiltHistogram.add(fresh.totalPoints());
+                        }
+                    }
+                    users = rebuiltUsers;
+                    ranking = rebuiltRanking;
+                    histogram = rebuiltHistogram;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                logger.info("Leaderboard index built with {} users", rebuiltUsers.size());
+            } finally {
+                setChangedDuringRebuild(null);
+            }
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ranking.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Users at positions {@code [page * size, page * size + size)} of the leaderboard.
+     */
+    public List<RankedUser> page(int page, int size) {
+        int from = (int) Math.min((long) page * size, Integer.MAX_VALUE);
+        lock.readLock().lock();
+        try {
+            return ranking.range(from, (int) Math.min((long) from + size, Integer.MAX_VALUE));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<RankedUser> find(Long userId) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(users.get(userId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rank for a points total: one more than the number of users with more points, so ties share a rank.
+     */
+    public long rankForPoints(int totalPoints) {
+        lock.readLock().lock();
+        try {
+            return histogram.countAbove(totalPoints) + 1L;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Share of users, in percent, ranked at or above a points total; 1.0 means "top 1%".
+     */
+    public double percentileForPoints(int totalPoints) {
+        lock.readLock().lock();
+        try {
+            long total = histogram.total();
+            if (total == 0) {
+                return 100.0;
+            }
+            double topShare = (histogram.countAbove(totalPoints) + 1) * 100.0 / total;
+            return Math.min(100.0, Math.round(topShare * 10) / 10.0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The user's own standing and its neighbours, {@code radius} on either side where possible, in leaderboard order.
+     * Ranks are competition ranks (users with more points + 1), so tied users share a rank.
+     * Empty when the user does not exist.
+     */
+    public List<Standing> around(Long userId, int radius) {
+        if (find(userId).isEmpty()) {
+            loadMissing(userId);
+        }
+        lock.readLock().lock();
+        try {
+            RankedUser user = users.get(userId);
+            if (user == null) {
+                return List.of();
+            }
+            // near either end the window shifts so it still holds 2 * radius + 1 users when there are that many
+            int width = 2 * radius + 1;
+            int from = Math.max(0, Math.min(ranking.rank(user) - radius, ranking.size() - width));
+            List<RankedUser> window = ranking.range(from, from + width);
+            List<Standing> standings = new ArrayList<>(window.size());
+            for (RankedUser neighbour : window) {
+                standings.add(new Standing(neighbour, histogram.countAbove(neighbour.totalPoints()) + 1));
+            }
+            return standings;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // caller holds the write lock
+    private void replace(RankedUser current, RankedUser updated) {
+        ranking.remove(current);
+        ranking.add(updated);
+        histogram.move(current.totalPoints(), updated.totalPoints());
+        users.put(updated.userId(), updated);
+    }
+
+    private void setChangedDuringRebuild(Set<Long> changed) {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public record Standing(RankedUser user, long rank) {
+    }
+
+    public record RankedUser(long userId, String username, int totalPoints, int gamesPlayed, int gamesWon,
+                             LocalDateTime createdAt, String profilePicture) {
+
+        // row layout of UserRepository#findLeaderBoardRows
+        static RankedUser of(Object[] row) {
+            return new RankedUser((Long) row[0], (String) row[1], (Integer) row[2], (Integer) row[3],
+                    (Integer) row[4], (LocalDateTime) row[5], (String) row[6]);
+        }
+
+        RankedUser withGuess(GuessScoredEvent event) {
+            boolean won = event.gameResult() == GameResult.EXACT_SCORE;
+            return new RankedUser(userId, username, totalPoints + event.points(), gamesPlayed + 1,
+                    gamesWon + (won ? 1 : 0), createdAt, profilePicture);
+        }
+
+        // same rounding as User#getWinPercentage
+        public Double winPercentage() {
+            return gamesPlayed > 0 ? (gamesWon * 100) / gamesPlayed : 0.0;
+        }
+    }
+}
@@ -1,68 +1,190 @@
 package com.retroscore.service;
 
+import com.retroscore.dto.LeaderBoardCursorPage;
 import com.retroscore.dto.LeaderBoardEntry;
 import com.retroscore.dto.LeaderBoardResponse;
+import com.retroscore.dto.LeaderBoardWindow;
+import com.retroscore.dto.StatsBreakdownDto;
 import com.retroscore.dto.UserStatsWithRank;
 import com.retroscore.entity.User;
-import com.retroscore.entity.UserGame;
+import com.retroscore.enums.GameResult;
+import com.retroscore.enums.LeaderBoardPeriod;
+import com.retroscore.exception.InvalidCursorException;
+import com.retroscore.repository.LeaderBoardRow;
 import com.retroscore.repository.UserGameRepository;
 import com.retroscore.repository.UserRepository;
+import com.retroscore.util.ScoreBoard;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class LeaderBoardService {
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    private static final int MAX_AROUND_ME_RADIUS = 50;
+
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
     private UserGameRepository userGameRepository;
 
+    @Autowired
+    private LeaderBoardIndex leaderBoardIndex;
+
+    @Autowired
+    private LeaderBoardSnapshots leaderBoardSnapshots;
+
+    @Autowired
+    private PeriodLeaderBoards periodLeaderBoards;
+
+    @Autowired
+    private ScopedLeaderBoards scopedLeaderBoards;
+
+    // served from the current snapshot when it covers the page, otherwise from the live in-memory index;
+    // nothing here touches the database, so no transaction (and no pooled connection) is opened
+    @Transactional(Transactional.TxType.SUPPORTS)
     public LeaderBoardResponse getLeaderBoard(int page, int size){
-        Pageable pageable = (Pageable) PageRequest.of(page, size,
-                Sort.by("totalPoints").descending()
-                        .and(Sort.by("createdAt").ascending()));
+        LeaderBoardSnapshots.Snapshot snapshot = leaderBoardSnapshots.current();
+        if (snapshot.covers(page, size)) {
+            return mapToLeaderBoardResponse(snapshot.page(page, size), snapshot.totalUsers(), page, size, snapshot.pageTag(page, size));
+        }
+        return mapToLeaderBoardResponse(leaderBoardIndex.page(page, size), leaderBoardIndex.size(), page, size, null);
+    }
 
-        Page<User> users = userRepository.findAllByOrderByTotalPointsDescCreatedAtAsc(pageable);
+    private LeaderBoardResponse mapToLeaderBoardResponse(List<LeaderBoardIndex.RankedUser> users, long totalUsers,
+                                                         int page, int size, String snapshotTag){
 
         List<LeaderBoardEntry> entries = new ArrayList<>();
-        for (int i = 0; i < users.getContent().size(); i++) {
-            User user = users.getContent().get(i);
+        for (int i = 0; i < users.size(); i++) {
+            LeaderBoardIndex.RankedUser user = users.get(i);
             Long rank = ((long) page * size + i + 1); // global rank
             LeaderBoardEntry entry = mapToLeaderBoardEntry(user, rank);
             entries.add(entry);
         }
         return LeaderBoardResponse.builder()
                         .entries(entries)
-                        .totalUsers(users.getTotalElements())
+                        .totalUsers(totalUsers)
                         .currentPage(page)
                         .pageSize(size)
+                        .snapshotTag(snapshotTag)
                         .build();
     }
+    /**
+     * Keyset page of the leaderboard from the database: seeks past the last row of the previous
+     * page on (total_points, created_at, id), so every page costs the same however deep it is.
+     * At most two bounded index seeks per page, one inside the cursor's points group and one below it.
+     */
+    public LeaderBoardCursorPage getLeaderBoardPage(String cursor, int size, boolean includeTotal){
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        LeaderBoardCursor after = cursor == null || cursor.isBlank() ? null : LeaderBoardCursor.decode(cursor);
+
+        List<LeaderBoardRow> rows;
+        if (after == null) {
+            rows = userRepository.findLeaderBoardFirstPage(Limit.of(pageSize));
+        } else {
+            rows = new ArrayList<>(after.createdAt() == null
+                    ? userRepository.findLeaderBoardTieGroupAfterUndated(after.totalPoints(), after.userId(), Limit.of(pageSize))
+                    : userRepository.findLeaderBoardTieGroupAfter(after.totalPoints(), after.createdAt(), after.userId(), Limit.of(pageSize)));
+            // the cursor's points group ran out before the page filled, continue with the users below it
+            if (rows.size() < pageSize) {
+                rows.addAll(userRepository.findLeaderBoardBelow(after.totalPoints(), Limit.of(pageSize - rows.size())));
+            }
+        }
+
+        long position = after == null ? 0 : after.position();
+        List<LeaderBoardEntry> entries = new ArrayList<>(rows.size());
+        for (LeaderBoardRow row : rows) {
+            entries.add(mapToLeaderBoardEntry(row, ++position));
+        }
+
+        String nextCursor = null;
+        if (rows.size() == pageSize) {
+            LeaderBoardRow last = rows.get(rows.size() - 1);
+            nextCursor = new LeaderBoardCursor(position, last.getTotalPoints(), last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return LeaderBoardCursorPage.builder()
+                .entries(entries)
+                .nextCursor(nextCursor)
+                .pageSize(pageSize)
+                // counted from the in-memory index instead of a COUNT(*) per page
+                .totalUsers(includeTotal ? (long) leaderBoardIndex.size() : null)
+                .build();
+    }
+
+    // the caller and up to radius users either side, straight from the in-memory index
+    public LeaderBoardWindow getLeaderBoardAroundUser(Long userId, int radius){
+        int clampedRadius = Math.max(0, Math.min(radius, MAX_AROUND_ME_RADIUS));
+        List<LeaderBoardIndex.Standing> standings = leaderBoardIndex.around(userId, clampedRadius);
+        if (standings.isEmpty()) {
+            throw new RuntimeException("user not found");
+        }
+
+        List<LeaderBoardEntry> entries = new ArrayList<>(standings.size());
+        Long userRank = null;
+        for (LeaderBoardIndex.Standing standing : standings) {
+            entries.add(mapToLeaderBoardEntry(standing.user(), standing.rank()));
+            if (standing.user().userId() == userId) {
+                userRank = standing.rank();
+            }
+        }
+        return LeaderBoardWindow.builder()
+                .entries(entries)
+                .userRank(userRank)
+                .totalUsers(leaderBoardIndex.size())
+                .build();
+    }
+
+    // same shape and rank semantics as getLeaderBoard, for the points scored in the current day, week or month
+    public LeaderBoardResponse getPeriodLeaderBoard(String period, int page, int size){
+        ScoreBoard board = periodLeaderBoards.current(LeaderBoardPeriod.parse(period));
+        return mapToLeaderBoardResponse(board, page, size);
+    }
+
+    public LeaderBoardEntry getPeriodStanding(Long userId, String period){
+        ScoreBoard board = periodLeaderBoards.current(LeaderBoardPeriod.parse(period));
+        return mapToStanding(board, userId);
+    }
+
+    // leaderboards of the points scored on one season's or one club's matches, empty until someone has played them
+    public LeaderBoardResponse getSeasonLeaderBoard(Long seasonId, int page, int size){
+        return mapToLeaderBoardResponse(scopedLeaderBoards.season(seasonId).orElseGet(ScoreBoard::new), page, size);
+    }
+
+    public LeaderBoardResponse getClubLeaderBoard(Long clubId, int page, int size){
+        return mapToLeaderBoardResponse(scopedLeaderBoards.club(clubId).orElseGet(ScoreBoard::new), page, size);
+    }
+
+    public LeaderBoardEntry getSeasonStanding(Long userId, Long seasonId){
+        return mapToStanding(scopedLeaderBoards.season(seasonId).orElseGet(ScoreBoard::new), userId);
+    }
+
+    public LeaderBoardEntry getClubStanding(Long userId, Long clubId){
+        return mapToStanding(scopedLeaderBoards.club(clubId).orElseGet(ScoreBoard::new), userId);
+    }
+
 public UserStatsWithRank getUserStatsWithRank(Long userId){
         User user = userRepository.findById(userId).
                 orElseThrow(()-> new RuntimeException("user not found"));
-        Long rank = userRepository.findUserRankByPoints(user.calculateTotalPoints());
+        // rank and percentile come from the in-memory points histogram, not a COUNT over users
+        Long rank = leaderBoardIndex.rankForPoints(user.calculateTotalPoints());
+        Double percentile = leaderBoardIndex.percentileForPoints(user.calculateTotalPoints());
 
-        List<UserGame> userGames = userGameRepository.findByUserId(userId);
-
-        int exactScores = (int) userGames.stream()
-                .filter(ug->Boolean.TRUE.equals(ug.getIsCorrectScore()))
-                .count();
-        int correctResults = (int) userGames.stream()
-                .filter(ug->Boolean.TRUE.equals(ug.getIsCorrectResult())&&
-                        !Boolean.TRUE.equals((ug.getIsCorrectScore())))
-                .count();
+        // counters kept up to date by every guess, no need to load the user's games
+        int exactScores = user.getExactScorePredictions();
+        int correctResults = user.getCorrectResultPredictions();
 
         return UserStatsWithRank.builder()
                 .userId(userId)
@@ -73,21 +195,139 @@ public UserStatsWithRank getUserStatsWithRank(Long userId){
                 .correctResultPredictions(correctResults)
                 .winPercentage(user.getWinPercentage())
                 .currentRank(rank)
+                .percentile(percentile)
                 .profilePictureURL(user.getProfilePicture())
                 .build();
 
 }
-public  LeaderBoardEntry mapToLeaderBoardEntry(User user, Long rank){
+/**
+ * Per-season, per-club and last-30-days totals for a user, aggregated by the database
+ * in one grouped query so memory stays flat however many games the user has played.
+ */
+public StatsBreakdownDto getUserStatsBreakdown(Long userId){
+        List<Object[]> rows = userGameRepository.findStatsBreakdownRows(userId, LocalDateTime.now().minusDays(30));
 
+        List<StatsBreakdownDto.Bucket> seasons = new ArrayList<>();
+        List<StatsBreakdownDto.Bucket> teams = new ArrayList<>();
+        StatsBreakdownDto.Bucket lastThirtyDays = null;
+        for (Object[] row : rows) {
+            StatsBreakdownDto.Bucket bucket = mapToBucket(row);
+            switch ((String) row[0]) {
+                case "SEASON" -> seasons.add(bucket);
+                case "TEAM" -> teams.add(bucket);
+                default -> lastThirtyDays = bucket;
+            }
+        }
+        seasons.sort(Comparator.comparing(StatsBreakdownDto.Bucket::getName, Comparator.nullsLast(Comparator.naturalOrder())));
+        teams.sort(Comparator.comparing(StatsBreakdownDto.Bucket::getGamesPlayed).reversed());
+
+        return StatsBreakdownDto.builder()
+                .userId(userId)
+                .seasons(seasons)
+                .teams(teams)
+                .lastThirtyDays(lastThirtyDays)
+                .build();
+}
+
+// row layout of UserGameRepository#findStatsBreakdownRows
+private StatsBreakdownDto.Bucket mapToBucket(Object[] row){
+        int exactScores = row[4] == null ? 0 : ((Number) row[4]).intValue();
+        int correctResults = row[5] == null ? 0 : ((Number) row[5]).intValue();
+        return StatsBreakdownDto.Bucket.builder()
+                .id(row[1] == null ? null : ((Number) row[1]).longValue())
+                .name((String) row[2])
+                .gamesPlayed(((Number) row[3]).intValue())
+                .exactScorePredictions(exactScores)
+                .correctResultPredictions(correctResults)
+                .totalPoints(exactScores * GameResult.EXACT_SCORE.getPoints() + correctResults * GameResult.CORRECT_RESULT.getPoints())
+                .build();
+}
+
+private LeaderBoardResponse mapToLeaderBoardResponse(ScoreBoard board, int page, int size){
+        List<LeaderBoardEntry> entries = new ArrayList<>();
+        for (ScoreBoard.Standing standing : board.page(page, size)) {
+            entries.add(mapToLeaderBoardEntry(standing.score(), standing.rank()));
+        }
+        return LeaderBoardResponse.builder()
+                .entries(entries)
+                .totalUsers(board.size())
+                .currentPage(page)
+                .pageSize(size)
+                .build();
+}
+
+// a user who has not scored on this board yet gets a zero entry ranked with everyone else on zero
+private LeaderBoardEntry mapToStanding(ScoreBoard board, Long userId){
+        return board.standing(userId)
+                .map(standing -> mapToLeaderBoardEntry(standing.score(), standing.rank()))
+                .orElseGet(() -> mapToLeaderBoardEntry(new ScoreBoard.Score(userId, null, 0, 0, 0), board.rankForPoints(0)));
+}
+
+private LeaderBoardEntry mapToLeaderBoardEntry(ScoreBoard.Score score, Long rank){
+        Optional<LeaderBoardIndex.RankedUser> user = leaderBoardIndex.find(score.userId());
         return LeaderBoardEntry.builder()
-                .userId(user.getId())
-                .username(user.getUsername())
-                .totalPoints(user.calculateTotalPoints())
-                .gamesPlayed(user.getGamesPlayed())
-                .winPercentage(user.getWinPercentage())
+                .userId(score.userId())
+                .username(user.map(LeaderBoardIndex.RankedUser::username).orElse(null))
+                .totalPoints(score.points())
+                .gamesPlayed(score.games())
+                // exact scores count as wins, same rounding as User#getWinPercentage
+                .winPercentage(score.games() > 0 ? (score.exactScores() * 100) / score.games() : 0.0)
                 .rank(rank)
-                .profilePictureURL(user.getProfilePicture())
+                .profilePictureURL(user.map(LeaderBoardIndex.RankedUser::profilePicture).orElse(null))
+                .build();
+}
+
+private LeaderBoardEntry mapToLeaderBoardEntry(LeaderBoardRow row, Long rank){
+        int gamesPlayed = row.getGamesPlayed();
+        return LeaderBoardEntry.builder()
+                .userId(row.getId())
+                .username(row.getUsername())
+                .totalPoints(row.getTotalPoints())
+                .gamesPlayed(gamesPlayed)
+                // same rounding as User#getWinPercentage
+                .winPercentage(gamesPlayed > 0 ? (row.getGamesWon() * 100) / gamesPlayed : 0.0)
+                .rank(rank)
+                .profilePictureURL(row.getProfilePicture())
+                .build();
+}
+
+// static so the stream service can map entries without going through the transactional proxy
+static LeaderBoardEntry mapToLeaderBoardEntry(LeaderBoardIndex.RankedUser user, Long rank){
+
+        return LeaderBoardEntry.builder()
+                .userId(user.userId())
+                .username(user.username())
+                .totalPoints(user.totalPoints())
+                .gamesPlayed(user.gamesPlayed())
+                .winPercentage(user.winPercentage())
+                .rank(rank)
+                .profilePictureURL(user.profilePicture())
                 .build();
 }
 
+    // last row of a page plus its position, opaque to clients
+    private record LeaderBoardCursor(long position, int totalPoints, LocalDateTime createdAt, long userId) {
+
+        String encode() {
+            String raw = position + "|" + totalPoints + "|" + (createdAt == null ? "" : createdAt) + "|" + userId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static LeaderBoardCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\\|", -1);
+                LeaderBoardCursor decoded = new LeaderBoardCursor(Long.parseLong(parts[0]), Integer.parseInt(parts[1]),
+                        parts[2].isEmpty() ? null : LocalDateTime.parse(parts[2]), Long.parseLong(parts[3]));
+                // encode() never writes these, so the cursor was edited by hand
+                if (parts.length != 4 || decoded.position() < 1 || decoded.totalPoints() < 0 || decoded.userId() < 1) {
+                    throw new IllegalArgumentException("not a cursor this service issued");
+                }
+                return decoded;
+            } catch (RuntimeException e) {
+                throw new InvalidCursorException(cursor);
+            }
+        }
+    }
+
 }
@@ -0,0 +1,108 @@
+package com.retroscore.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Immutable copy of the top {@code game.leaderboard.snapshot.max-entries} users, refreshed every
+ * {@code game.leaderboard.snapshot.max-age-ms}. {@link Snapshot#pageTag} hashes the content of a page,
+ * so its ETag is the same on every instance and across restarts, and changes only with the page.
+ * Refreshes are single-flight: while one is running, other callers keep the current snapshot.
+ */
+@Service
+public class LeaderBoardSnapshots {
+
+    private final LeaderBoardIndex leaderBoardIndex;
+    private final int maxEntries;
+    private final Duration maxAge;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+
+    public LeaderBoardSnapshots(LeaderBoardIndex leaderBoardIndex,
+                                @Value("${game.leaderboard.snapshot.max-entries:1000}") int maxEntries,
+                                @Value("${game.leaderboard.snapshot.max-age-ms:30000}") long maxAgeMs) {
+        this.leaderBoardIndex = leaderBoardIndex;
+        this.maxEntries = maxEntries;
+        this.maxAge = Duration.ofMillis(maxAgeMs);
+    }
+
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            // nothing to serve yet, wait for the first build
+            refreshLock.lock();
+            try {
+                if (snapshot == null) {
+                    build();
+                }
+            } finally {
+                refreshLock.unlock();
+            }
+        } else if (current.builtAt().plus(maxAge).isBefore(Instant.now())) {
+            refresh();
+        }
+        return snapshot;
+    }
+
+    @Scheduled(fixedDelayString = "${game.leaderboard.snapshot.max-age-ms:30000}")
+    public void refresh() {
+        if (!refreshLock.tryLock()) {
+            return;
+        }
+        try {
+            build();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    // caller holds refreshLock
+    private void build() {
+        List<LeaderBoardIndex.RankedUser> top = List.copyOf(leaderBoardIndex.page(0, maxEntries));
+        snapshot = new Snapshot(top, leaderBoardIndex.size(), Instant.now());
+    }
+
+    public record Snapshot(List<LeaderBoardIndex.RankedUser> top, long totalUsers, Instant builtAt) {
+
+        // whether the page lies within the materialized top, deeper pages are read live
+        public boolean covers(int page, int size) {
+            return (long) page * size + size <= top.size() || top.size() == totalUsers;
+        }
+
+        public List<LeaderBoardIndex.RankedUser> page(int page, int size) {
+            int from = (int) Math.min((long) page * size, top.size());
+            return top.subList(from, (int) Math.min((long) from + size, top.size()));
+        }
+
+        /**
+         * SHA-256 of everything the page response shows, a validator that does not depend on
+         * which instance built the snapshot or when.
+         */
+        public String pageTag(int page, int size) {
+            StringBuilder content = new StringBuilder().append(totalUsers).append('|').append(page).append('|').append(size);
+            for (LeaderBoardIndex.RankedUser user : page(page, size)) {
+                content.append('|').append(user.userId()).append(',').append(user.username())
+                        .append(',').append(user.totalPoints()).append(',').append(user.gamesPlayed())
+                        .append(',').append(user.gamesWon()).append(',').append(user.createdAt())
+                        .append(',').append(user.profilePicture());
+            }
+            try {
+                byte[] hash = MessageDigest.getInstance("SHA-256").digest(content.toString().getBytes(StandardCharsets.UTF_8));
+                return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.retroscore.service;
+
+import com.retroscore.dto.LeaderBoardEntry;
+import com.retroscore.dto.RankUpdate;
+import com.retroscore.event.GuessScoredEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pushes leaderboard changes over Server-Sent Events: a "rank" event when the subscriber's own
+ * rank or points move, and a "top" event when the top {@code game.leaderboard.stream.top-size}
+ * changes. Driven by {@link GuessScoredEvent} after {@link LeaderBoardIndex} has applied it.
+ * The committing thread only queues the event; ranks are worked out on the sender threads by a
+ * single recompute task that takes every event queued so far, so a burst of guesses costs one
+ * pass. Subscribers are also keyed by their points, and a pass recomputes only those whose points
+ * lie in a band some scorer just moved through, plus the scorers themselves.
+ * Each subscriber keeps only the latest pending update per event type, so a slow client gets one
+ * send rather than a backlog.
+ */
+@Service
+public class LeaderBoardStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaderBoardStreamService.class);
+
+    private final LeaderBoardIndex leaderBoardIndex;
+    private final int topSize;
+    private final long timeoutMs;
+    private final ExecutorService sender;
+
+    private final Map<Long, Set<Subscriber>> rankSubscribers = new ConcurrentHashMap<>();
+    private final Set<Subscriber> topSubscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicReference<List<LeaderBoardIndex.RankedUser>> lastTop = new AtomicReference<>(List.of());
+
+    // handed from the committing threads to the recompute task
+    private final ConcurrentLinkedQueue<GuessScoredEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+    // users who subscribed or unsubscribed since the last pass, to be (re)keyed or dropped by points
+    private final ConcurrentLinkedQueue<Long> pendingMembership = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean recomputing = new AtomicBoolean();
+    // only touched by the recompute task, which never runs twice at once
+    private final TreeMap<Integer, Set<Long>> subscribersByPoints = new TreeMap<>();
+    private final Map<Long, Integer> subscribedPoints = new HashMap<>();
+
+    @Autowired
+    public LeaderBoardStreamService(LeaderBoardIndex leaderBoardIndex,
+                                    @Value("${game.leaderboard.stream.top-size:10}") int topSize,
+                                    @Value("${game.leaderboard.stream.timeout-ms:1800000}") long timeoutMs,
+                                    @Value("${game.leaderboard.stream.sender-threads:4}") int senderThreads) {
+        this(leaderBoardIndex, topSize, timeoutMs, senderPool(senderThreads));
+    }
+
+    LeaderBoardStreamService(LeaderBoardIndex leaderBoardIndex, int topSize, long timeoutMs, ExecutorService sender) {
+        this.leaderBoardIndex = leaderBoardIndex;
+        this.topSize = topSize;
+        this.timeoutMs = timeoutMs;
+        this.sender = sender;
+    }
+
+    private static ExecutorService senderPool(int senderThreads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "leaderboard-sse-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens a stream for the user, starting with their current standing and, if asked for, the current top.
+     */
+    public SseEmitter subscribe(Long userId, boolean includeTop) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(userId, emitter);
+        rankSubscribers.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        if (includeTop) {
+            topSubscribers.add(subscriber);
+        }
+        pendingMembership.add(userId);
+        scheduleRecompute();
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(error -> unsubscribe(subscriber));
+
+        rankUpdate(userId).ifPresent(subscriber::offerRank);
+        if (includeTop) {
+            subscriber.offerTop(topEntries(leaderBoardIndex.page(0, topSize)));
+        }
+        return emitter;
+    }
+
+    // runs after the index has applied the guess, see the order on LeaderBoardIndex#onGuessScored;
+    // nothing is looked up here, the committing thread only queues the event
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGuessScored(GuessScoredEvent event) {
+        if (rankSubscribers.isEmpty() && topSubscribers.isEmpty()) {
+            return;
+        }
+        pendingEvents.add(event);
+        scheduleRecompute();
+    }
+
+    // at most one recompute is queued or running, later events are picked up by it
+    private void scheduleRecompute() {
+        // streams completed by shutdown() unsubscribe after the pool is gone
+        if (sender.isShutdown()) {
+            return;
+        }
+        if (recomputing.compareAndSet(false, true)) {
+            sender.execute(this::recompute);
+        }
+    }
+
+    private void recompute() {
+        try {
+            do {
+                Long member;
+                while ((member = pendingMembership.poll()) != null) {
+                    rekey(member);
+                }
+                Map<Long, Integer> scored = new HashMap<>();
+                GuessScoredEvent event;
+                while ((event = pendingEvents.poll()) != null) {
+                    scored.merge(event.userId(), event.points(), Integer::sum);
+                }
+                if (!scored.isEmpty()) {
+                    pushRankChanges(scored);
+                    if (!topSubscribers.isEmpty()) {
+                        pushTopIfChanged();
+                    }
+                }
+                recomputing.set(false);
+                // work may have been queued after the polls above, take it unless another task already did
+            } while ((!pendingEvents.isEmpty() || !pendingMembership.isEmpty()) && recomputing.compareAndSet(false, true));
+        } catch (RuntimeException e) {
+            recomputing.set(false);
+            logger.warn("Leaderboard stream recompute failed", e);
+        }
+    }
+
+    // scored maps each scorer to the points they gained since the last pass
+    private void pushRankChanges(Map<Long, Integer> scored) {
+        Set<Long> affected = new HashSet<>();
+        scored.forEach((userId, points) -> {
+            if (subscribedPoints.containsKey(userId)) {
+                affected.add(userId);
+            }
+            Optional<LeaderBoardIndex.RankedUser> scorer = leaderBoardIndex.find(userId);
+            if (scorer.isEmpty() || points == 0) {
+                return;
+            }
+            // everyone the scorer just passed dropped a place
+            int newPoints = scorer.get().totalPoints();
+            subscribersByPoints.subMap(newPoints - points, true, newPoints, false).values().forEach(affected::addAll);
+        });
+        for (Long userId : affected) {
+            if (scored.containsKey(userId)) {
+                rekey(userId);
+            }
+            pushRank(userId);
+        }
+    }
+
+    // files the user under their current points, or forgets them once they have no stream left
+    private void rekey(Long userId) {
+        Integer previous = subscribedPoints.remove(userId);
+        if (previous != null) {
+            subscribersByPoints.computeIfPresent(previous, (points, userIds) -> {
+                userIds.remove(userId);
+                return userIds.isEmpty() ? null : userIds;
+            });
+        }
+        if (!rankSubscribers.containsKey(userId)) {
+            return;
+        }
+        leaderBoardIndex.find(userId).ifPresent(user -> {
+            subscribedPoints.put(userId, user.totalPoints());
+            subscribersByPoints.computeIfAbsent(user.totalPoints(), points -> new HashSet<>()).add(userId);
+        });
+    }
+
+    private void pushRank(Long userId) {
+        Set<Subscriber> subscribers = rankSubscribers.get(userId);
+        if (subscribers == null || subscribers.isEmpty()) {
+            return;
+        }
+        rankUpdate(userId).ifPresent(update -> subscribers.forEach(subscriber -> subscriber.offerRank(update)));
+    }
+
+    private void pushTopIfChanged() {
+        List<LeaderBoardIndex.RankedUser> top = leaderBoardIndex.page(0, topSize);
+        List<LeaderBoardIndex.RankedUser> previous = lastTop.getAndSet(top);
+        if (top.equals(previous)) {
+            return;
+        }
+        List<LeaderBoardEntry> entries = topEntries(top);
+        topSubscribers.forEach(subscriber -> subscriber.offerTop(entries));
+    }
+
+    private Optional<RankUpdate> rankUpdate(Long userId) {
+        return leaderBoardIndex.find(userId).map(user -> RankUpdate.builder()
+                .userId(userId)
+                .totalPoints(user.totalPoints())
+                .currentRank(leaderBoardIndex.rankForPoints(user.totalPoints()))
+                .percentile(leaderBoardIndex.percentileForPoints(user.totalPoints()))
+                .totalUsers(leaderBoardIndex.size())
+                .build());
+    }
+
+    private List<LeaderBoardEntry> topEntries(List<LeaderBoardIndex.RankedUser> top) {
+        List<LeaderBoardEntry> entries = new ArrayList<>(top.size());
+        for (int i = 0; i < top.size(); i++) {
+            entries.add(LeaderBoardService.mapToLeaderBoardEntry(top.get(i), (long) i + 1));
+        }
+        return entries;
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        rankSubscribers.computeIfPresent(subscriber.userId, (userId, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+        topSubscribers.remove(subscriber);
+        pendingMembership.add(subscriber.userId);
+        scheduleRecompute();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        rankSubscribers.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        topSubscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    private final class Subscriber {
+        final Long userId;
+        final SseEmitter emitter;
+        // latest unsent update per event type, older ones are simply overwritten
+        private final AtomicReference<RankUpdate> pendingRank = new AtomicReference<>();
+        private final AtomicReference<List<LeaderBoardEntry>> pendingTop = new AtomicReference<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile RankUpdate lastRank;
+
+        Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void offerRank(RankUpdate update) {
+            pendingRank.set(update);
+            scheduleDrain();
+        }
+
+        void offerTop(List<LeaderBoardEntry> entries) {
+            pendingTop.set(entries);
+            scheduleDrain();
+        }
+
+        // at most one drain per subscriber is queued or running
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    RankUpdate rank = pendingRank.getAndSet(null);
+                    List<LeaderBoardEntry> top = pendingTop.getAndSet(null);
+                    if (rank == null && top == null) {
+                        draining.set(false);
+                        // an offer may have landed after the reads above, pick it up unless another drain did
+                        if ((pendingRank.get() == null && pendingTop.get() == null) || !draining.compareAndSet(false, true)) {
+                            return;
+                        }
+                        continue;
+                    }
+                    if (rank != null && !sameStanding(rank, lastRank)) {
+                        emitter.send(SseEmitter.event().name("rank").data(rank));
+                        lastRank = rank;
+                    }
+                    if (top != null) {
+                        emitter.send(SseEmitter.event().name("top").data(top));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Dropping leaderboard stream of user {}: {}", userId, e.getMessage());
+                unsubscribe(this);
+                emitter.completeWithError(e);
+            }
+        }
+
+        private boolean sameStanding(RankUpdate update, RankUpdate previous) {
+            return previous != null
+                    && previous.getCurrentRank().equals(update.getCurrentRank())
+                    && previous.getTotalPoints().equals(update.getTotalPoints());
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.retroscore.service;
+
+import com.retroscore.entity.FootballClub;
+import com.retroscore.event.SeasonImportedEvent;
+import com.retroscore.repository.FootballClubRepository;
+import com.retroscore.repository.MatchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read-only, in-memory view of every imported match.
+ * Matches are stored as primitive columns sorted by id, with per-team, per-season and per-team-per-season
+ * id arrays precomputed so random selection never has to go to the database.
+ * The whole snapshot is swapped atomically after each season import. Rebuilds run one at a
+ * time, so a rebuild that read the matches earlier can never replace the snapshot of a later one.
+ */
+@Service
+public class MatchCatalog implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatchCatalog.class);
+    private static final long[] NO_MATCHES = new long[0];
+
+    private final MatchRepository matchRepository;
+    private final FootballClubRepository footballClubRepository;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public MatchCatalog(MatchRepository matchRepository, FootballClubRepository footballClubRepository) {
+        this.matchRepository = matchRepository;
+        this.footballClubRepository = footballClubRepository;
+    }
+
+    // built before the web server starts, so no request ever sees an empty catalog
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSeasonImported(SeasonImportedEvent event) {
+        logger.info("Rebuilding match catalog after import of season {}", event.seasonName());
+        rebuild();
+    }
+
+    // waits for a running rebuild rather than skipping, that one may have read the matches before the latest import
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            List<Object[]> rows = matchRepository.findCatalogRows();
+            Map<Long, String> clubNames = new HashMap<>();
+            for (FootballClub club : footballClubRepository.findAll()) {
+                clubNames.put(club.getId(), club.getName());
+            }
+            snapshot = Snapshot.of(rows, clubNames);
+            logger.info("Match catalog built with {} matches", rows.size());
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Match ids for the given filters, sorted ascending. Either filter may be null.
+     * The returned array may be shared with the catalog and must not be modified.
+     */
+    public long[] findMatchIds(Long teamId, Long seasonId) {
+        Snapshot current = snapshot;
+        if (teamId != null && seasonId != null) {
+            return current.teamSeasonIds.getOrDefault(teamId, Map.of()).getOrDefault(seasonId, NO_MATCHES);
+        } else if (teamId != null) {
+            return current.teamIds.getOrDefault(teamId, NO_MATCHES);
+        } else if (seasonId != null) {
+            return current.seasonIds.getOrDefault(seasonId, NO_MATCHES);
+        }
+        return current.ids;
+    }
+
+    /**
+     * Result and teams of a single match, used to score guesses without a database round trip.
+     */
+    public Optional<CatalogMatch> findMatch(long matchId) {
+        Snapshot current = snapshot;
+        int slot = Arrays.binarySearch(current.ids, matchId);
+        if (slot < 0) {
+            return Optional.empty();
+        }
+        String title = current.clubNames.get(current.homeTeamColumn[slot]) + " vs " + current.clubNames.get(current.awayTeamColumn[slot]);
+        return Optional.of(new CatalogMatch(matchId, current.seasonColumn[slot],
+                current.homeTeamColumn[slot], current.awayTeamColumn[slot],
+                current.homeScores[slot], current.awayScores[slot], title));
+    }
+
+    public int size() {
+        return snapshot.ids.length;
+    }
+
+    public record CatalogMatch(long matchId, long seasonId, long homeTeamId, long awayTeamId,
+                               int homeScore, int awayScore, String matchTitle) {
+    }
+
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = of(List.of(), Map.of());
+
+        // columns, one slot per match, ordered by match id
+        final long[] ids;
+        final long[] seasonColumn;
+        final long[] homeTeamColumn;
+        final long[] awayTeamColumn;
+        final int[] homeScores;
+        final int[] awayScores;
+
+        final Map<Long, long[]> teamIds;
+        final Map<Long, long[]> seasonIds;
+        // team id to season id to that team's matches in the season
+        final Map<Long, Map<Long, long[]>> teamSeasonIds;
+        final Map<Long, String> clubNames;
+
+        private Snapshot(int size, Map<Long, String> clubNames) {
+            ids = new long[size];
+            seasonColumn = new long[size];
+            homeTeamColumn = new long[size];
+            awayTeamColumn = new long[size];
+            homeScores = new int[size];
+            awayScores = new int[size];
+            teamIds = new HashMap<>();
+            seasonIds = new HashMap<>();
+            teamSeasonIds = new HashMap<>();
+            this.clubNames = clubNames;
+        }
+
+        static Snapshot of(List<Object[]> rows, Map<Long, String> clubNames) {
+            Snapshot s = new Snapshot(rows.size(), clubNames);
+            Map<Long, LongArrayBuilder> byTeam = new HashMap<>();
+            Map<Long, LongArrayBuilder> bySeason = new HashMap<>();
+            Map<Long, Map<Long, LongArrayBuilder>> byTeamSeason = new HashMap<>();
+
+            for (int i = 0; i < rows.size(); i++) {
+                Object[] row = rows.get(i);
+                long matchId = (Long) row[0];
+                s.ids[i] = matchId;
+                s.seasonColumn[i] = (Long) row[1];
+                s.homeTeamColumn[i] = (Long) row[2];
+                s.awayTeamColumn[i] = (Long) row[3];
+                s.homeScores[i] = (Integer) row[4];
+                s.awayScores[i] = (Integer) row[5];
+
+                bySeason.computeIfAbsent(s.seasonColumn[i], k -> new LongArrayBuilder()).add(matchId);
+                byTeam.computeIfAbsent(s.homeTeamColumn[i], k -> new LongArrayBuilder()).add(matchId);
+                byTeam.computeIfAbsent(s.awayTeamColumn[i], k -> new LongArrayBuilder()).add(matchId);
+                byTeamSeason.computeIfAbsent(s.homeTeamColumn[i], k -> new HashMap<>())
+                        .computeIfAbsent(s.seasonColumn[i], k -> new LongArrayBuilder()).add(matchId);
+                byTeamSeason.computeIfAbsent(s.awayTeamColumn[i], k -> new HashMap<>())
+                        .computeIfAbsent(s.seasonColumn[i], k -> new LongArrayBuilder()).add(matchId);
+            }
+
+            byTeam.forEach((teamId, builder) -> s.teamIds.put(teamId, builder.build()));
+            bySeason.forEach((seasonId, builder) -> s.seasonIds.put(seasonId, builder.build()));
+            byTeamSeason.forEach((teamId, seasons) -> {
+                Map<Long, long[]> teamSeasons = new HashMap<>();
+                seasons.forEach((seasonId, builder) -> teamSeasons.put(seasonId, builder.build()));
+                s.teamSeasonIds.put(teamId, teamSeasons);
+            });
+            return s;
+        }
+    }
+
+    private static final class LongArrayBuilder {
+        private long[] values = new long[16];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] build() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
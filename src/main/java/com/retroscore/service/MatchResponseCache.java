@@ -0,0 +1,119 @@
+package com.retroscore.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.retroscore.dto.MatchDto;
+import com.retroscore.dto.PlayHistoryDto;
+import com.retroscore.event.SeasonImportedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Pre-rendered JSON for historic matches, which never change once imported.
+ * Each entry keeps the serialized match without its closing brace, so the per-user
+ * play history can be appended at request time, plus a gzipped copy of the full body
+ * for the common case where the user has no history for the match.
+ * Entries of a season are dropped when that season is imported again.
+ */
+@Service
+public class MatchResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatchResponseCache.class);
+    private static final byte[] PLAY_HISTORY_FIELD = ",\"playHistoryDto\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NO_PLAY_HISTORY = "null}".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+    private final Map<Long, RenderedMatch> renderedMatches = new ConcurrentHashMap<>();
+
+    public MatchResponseCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public RenderedMatch get(Long matchId, Supplier<MatchDto> loader) {
+        RenderedMatch rendered = renderedMatches.get(matchId);
+        if (rendered == null) {
+            rendered = render(loader.get());
+            renderedMatches.put(matchId, rendered);
+        }
+        return rendered;
+    }
+
+    /**
+     * Response body for a cached match with the caller's play history appended.
+     * Returns the pre-gzipped bytes when there is no history and the client accepts gzip.
+     */
+    public ResponseBody body(RenderedMatch rendered, PlayHistoryDto playHistory, boolean acceptsGzip) {
+        if (playHistory == null && acceptsGzip) {
+            return new ResponseBody(rendered.gzipped, true);
+        }
+        try {
+            byte[] history = playHistory == null ? NO_PLAY_HISTORY : objectMapper.writeValueAsBytes(playHistory);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(rendered.prefix.length + PLAY_HISTORY_FIELD.length + history.length + 1);
+            out.write(rendered.prefix);
+            out.write(PLAY_HISTORY_FIELD);
+            out.write(history);
+            if (playHistory != null) {
+                out.write('}');
+            }
+            return new ResponseBody(out.toByteArray(), false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to render match response", e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSeasonImported(SeasonImportedEvent event) {
+        renderedMatches.values().removeIf(rendered -> rendered.seasonName.equals(event.seasonName()));
+        logger.info("Evicted cached match responses for season {}", event.seasonName());
+    }
+
+    private RenderedMatch render(MatchDto matchDto) {
+        try {
+            ObjectNode node = objectMapper.valueToTree(matchDto);
+            node.remove("playHistoryDto");
+            byte[] json = objectMapper.writeValueAsBytes(node);
+            // drop the closing brace, the play history field is appended per request
+            byte[] prefix = new byte[json.length - 1];
+            System.arraycopy(json, 0, prefix, 0, prefix.length);
+
+            ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+                gzip.write(prefix);
+                gzip.write(PLAY_HISTORY_FIELD);
+                gzip.write(NO_PLAY_HISTORY);
+            }
+            return new RenderedMatch(prefix, gzipped.toByteArray(), String.valueOf(matchDto.getSeasonName()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize match " + matchDto.getMatchId(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compress match " + matchDto.getMatchId(), e);
+        }
+    }
+
+    public static final class RenderedMatch {
+        private final byte[] prefix;
+        private final byte[] gzipped;
+        private final String seasonName;
+
+        private RenderedMatch(byte[] prefix, byte[] gzipped, String seasonName) {
+            this.prefix = prefix;
+            this.gzipped = gzipped;
+            this.seasonName = seasonName;
+        }
+    }
+
+    public record ResponseBody(byte[] content, boolean gzipped) {
+    }
+}
@@ -0,0 +1,218 @@
+package com.retroscore.service;
+
+import com.retroscore.enums.GameResult;
+import com.retroscore.enums.LeaderBoardPeriod;
+import com.retroscore.event.GuessScoredEvent;
+import com.retroscore.repository.UserGameRepository;
+import com.retroscore.util.ScoreBoard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Daily, weekly and monthly leaderboards. Each period keeps a {@link ScoreBoard} of the points
+ * scored since the period started, fed by every scored guess; when the calendar moves into a
+ * new period the board starts over empty. The current periods are loaded from the games played
+ * since the earliest of their start dates before the web server starts and every
+ * {@code game.leaderboard.rebuild-interval-ms}, so a missed event does not stay on the boards.
+ * Periods follow the calendar of the JVM's default time zone, the zone guesses are timestamped in.
+ */
+@Service
+public class PeriodLeaderBoards implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(PeriodLeaderBoards.class);
+
+    private final UserGameRepository userGameRepository;
+    private final LeaderBoardIndex leaderBoardIndex;
+    private final Clock clock;
+    private final Map<LeaderBoardPeriod, PeriodBoard> boards = new EnumMap<>(LeaderBoardPeriod.class);
+    // guesses are recorded under the read lock, a reload swaps its boards in under the write lock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object reloadMonitor = new Object();
+    // users scored while a reload is reading the totals, re-read before the reloaded boards go live
+    private volatile Set<Long> changedDuringReload;
+
+    @Autowired
+    public PeriodLeaderBoards(UserGameRepository userGameRepository, LeaderBoardIndex leaderBoardIndex) {
+        this(userGameRepository, leaderBoardIndex, Clock.systemDefaultZone());
+    }
+
+    PeriodLeaderBoards(UserGameRepository userGameRepository, LeaderBoardIndex leaderBoardIndex, Clock clock) {
+        this.userGameRepository = userGameRepository;
+        this.leaderBoardIndex = leaderBoardIndex;
+        this.clock = clock;
+        LocalDate today = LocalDate.now(clock);
+        for (LeaderBoardPeriod period : LeaderBoardPeriod.values()) {
+            boards.put(period, new PeriodBoard(period, period.startOf(today)));
+        }
+    }
+
+    // built before the web server starts, so no request ever sees an empty board or reads as rank 1
+    @Override
+    public void afterSingletonsInstantiated() {
+        reload(LocalDate.now(clock));
+    }
+
+    @Scheduled(initialDelayString = "${game.leaderboard.rebuild-interval-ms:600000}",
+            fixedDelayString = "${game.leaderboard.rebuild-interval-ms:600000}")
+    public void scheduledReload() {
+        reload(LocalDate.now(clock));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGuessScored(GuessScoredEvent event) {
+        LocalDate playedOn = event.playedAt().toLocalDate();
+        int exactScores = event.gameResult() == GameResult.EXACT_SCORE ? 1 : 0;
+        // the index has applied this guess first, so the user is in it
+        LocalDateTime joinedAt = leaderBoardIndex.find(event.userId()).map(LeaderBoardIndex.RankedUser::createdAt).orElse(null);
+        lock.readLock().lock();
+        try {
+            Set<Long> changed = changedDuringReload;
+            if (changed != null) {
+                changed.add(event.userId());
+            }
+            for (PeriodBoard board : boards.values()) {
+                board.record(event.userId(), joinedAt, playedOn, event.points(), exactScores);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Board of the period running today.
+     */
+    public ScoreBoard current(LeaderBoardPeriod period) {
+        return boards.get(period).current(LocalDate.now(clock));
+    }
+
+    private void reload(LocalDate today) {
+        synchronized (reloadMonitor) {
+            changedDuringReload = ConcurrentHashMap.newKeySet();
+            try {
+                LocalDate since = today;
+                for (PeriodBoard board : boards.values()) {
+                    LocalDate start = board.period.startOf(today);
+                    since = start.isBefore(since) ? start : since;
+                }
+
+                List<Object[]> rows = userGameRepository.findDailyTotalsSince(since.atStartOfDay());
+                Map<LeaderBoardPeriod, ScoreBoard> loaded = new EnumMap<>(LeaderBoardPeriod.class);
+                for (PeriodBoard board : boards.values()) {
+                    loaded.put(board.period, new ScoreBoard());
+                }
+                record(rows, today, loaded);
+
+                lock.writeLock().lock();
+                try {
+                    // the totals read may have missed guesses recorded meanwhile, take those users' totals again
+                    Set<Long> changed = changedDuringReload;
+                    if (!changed.isEmpty()) {
+                        for (ScoreBoard board : loaded.values()) {
+                            changed.forEach(board::remove);
+                        }
+                        record(userGameRepository.findDailyTotalsSinceByUserIdIn(since.atStartOfDay(), changed), today, loaded);
+                    }
+                    for (PeriodBoard board : boards.values()) {
+                        board.replace(board.period.startOf(today), loaded.get(board.period));
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                logger.info("Period leaderboards loaded from {} daily totals since {}", rows.size(), since);
+            } finally {
+                changedDuringReload = null;
+            }
+        }
+    }
+
+    // adds daily total rows to the boards of every period they fall in
+    private void record(List<Object[]> rows, LocalDate today, Map<LeaderBoardPeriod, ScoreBoard> loaded) {
+        for (Object[] row : rows) {
+            long userId = ((Number) row[0]).longValue();
+            LocalDate playedOn = toLocalDate(row[1]);
+            int games = ((Number) row[2]).intValue();
+            int exactScores = row[3] == null ? 0 : ((Number) row[3]).intValue();
+            int correctResults = row[4] == null ? 0 : ((Number) row[4]).intValue();
+            int points = exactScores * GameResult.EXACT_SCORE.getPoints() + correctResults * GameResult.CORRECT_RESULT.getPoints();
+            LocalDateTime joinedAt = toLocalDateTime(row[5]);
+            for (LeaderBoardPeriod period : loaded.keySet()) {
+                if (!playedOn.isBefore(period.startOf(today))) {
+                    loaded.get(period).record(userId, joinedAt, points, games, exactScores);
+                }
+            }
+        }
+    }
+
+    // native DATE columns come back as java.sql.Date
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate();
+        }
+        return (LocalDate) value;
+    }
+
+    // native TIMESTAMP columns may come back as java.sql.Timestamp
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof java.sql.Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+
+    private static final class PeriodBoard {
+        final LeaderBoardPeriod period;
+        private LocalDate start;
+        private ScoreBoard board = new ScoreBoard();
+
+        PeriodBoard(LeaderBoardPeriod period, LocalDate start) {
+            this.period = period;
+            this.start = start;
+        }
+
+        synchronized void record(long userId, LocalDateTime joinedAt, LocalDate playedOn, int points, int exactScores) {
+            LocalDate playedInPeriod = period.startOf(playedOn);
+            rollTo(playedInPeriod);
+            // a guess scored just before midnight that arrives after the roll belongs to a closed period
+            if (playedInPeriod.equals(start)) {
+                board.record(userId, joinedAt, points, 1, exactScores);
+            }
+        }
+
+        synchronized ScoreBoard current(LocalDate today) {
+            rollTo(period.startOf(today));
+            return board;
+        }
+
+        synchronized void replace(LocalDate start, ScoreBoard board) {
+            // the calendar moved into a new period while the reload ran, keep the new period's board
+            if (this.start.isAfter(start)) {
+                return;
+            }
+            this.start = start;
+            this.board = board;
+        }
+
+        // a fresh board rather than clear(), readers may still hold the closed one
+        private void rollTo(LocalDate periodStart) {
+            if (periodStart.isAfter(start)) {
+                start = periodStart;
+                board = new ScoreBoard();
+            }
+        }
+    }
+}
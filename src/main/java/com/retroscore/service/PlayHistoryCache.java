@@ -0,0 +1,193 @@
+package com.retroscore.service;
+
+import com.retroscore.enums.GameResult;
+import com.retroscore.event.GuessScoredEvent;
+import com.retroscore.repository.UserGameRepository;
+import com.retroscore.util.MatchIdBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-user bitmaps of played and incorrectly guessed match ids.
+ * A user's history is loaded with one query on first use and then kept up to date from
+ * {@link GuessScoredEvent}s once each guess has committed; the least recently used users are
+ * evicted once the cache holds more than {@code game.play-history-cache.max-users} entries.
+ * Loading a user and recording a guess for them take the same per-user lock, so a guess that
+ * commits while the user's history is being loaded is never lost.
+ * Users with guesses still queued for the write-behind writer are pinned and never evicted,
+ * since reloading them from the database would lose those guesses; eviction passes over them
+ * to the least recently used unpinned users.
+ */
+@Service
+public class PlayHistoryCache {
+
+    private static final int LOAD_LOCK_STRIPES = 64;
+
+    private final UserGameRepository userGameRepository;
+    // guarded by itself
+    private final Map<Long, PlayHistory> histories;
+    private final Object[] loadLocks = new Object[LOAD_LOCK_STRIPES];
+    // user id to the number of their guesses not yet written
+    private final Map<Long, Integer> pinned = new ConcurrentHashMap<>();
+
+    public PlayHistoryCache(UserGameRepository userGameRepository,
+                            @Value("${game.play-history-cache.max-users:10000}") int maxUsers) {
+        this.userGameRepository = userGameRepository;
+        this.histories = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, PlayHistory> eldest) {
+                if (size() > maxUsers) {
+                    evictUnpinned(this, maxUsers);
+                }
+                // entries were removed directly, so the eldest must not be removed on top
+                return false;
+            }
+        };
+        for (int i = 0; i < LOAD_LOCK_STRIPES; i++) {
+            loadLocks[i] = new Object();
+        }
+    }
+
+    public PlayHistory get(Long userId) {
+        PlayHistory cached = cached(userId);
+        if (cached != null) {
+            return cached;
+        }
+
+        synchronized (loadLock(userId)) {
+            // another request may have loaded the same user while we waited
+            cached = cached(userId);
+            if (cached != null) {
+                return cached;
+            }
+            PlayHistory loaded = load(userId);
+            synchronized (histories) {
+                histories.put(userId, loaded);
+            }
+            return loaded;
+        }
+    }
+
+    /**
+     * Like {@link #get} but keeps the user cached until a matching {@link #unpin}.
+     */
+    public PlayHistory pin(Long userId) {
+        // pinned before the lookup, so the entry cannot be evicted between the two
+        pinned.merge(userId, 1, Integer::sum);
+        return get(userId);
+    }
+
+    public void unpin(Long userId) {
+        pinned.computeIfPresent(userId, (id, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * Removes a match from a cached user's history, for a guess that was accepted but never written.
+     */
+    public void forget(Long userId, Long matchId) {
+        synchronized (loadLock(userId)) {
+            PlayHistory cached = cached(userId);
+            if (cached != null) {
+                cached.forget(matchId);
+            }
+        }
+    }
+
+    // after commit: a load running concurrently either already read the row or finishes first and gets it recorded here
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGuessScored(GuessScoredEvent event) {
+        recordGuess(event.userId(), event.matchId(), event.gameResult() == GameResult.EXACT_SCORE);
+    }
+
+    /**
+     * Records a committed guess for a user whose history is already cached.
+     * Users that are not cached pick the guess up on their next load.
+     */
+    public void recordGuess(Long userId, Long matchId, boolean correctScore) {
+        synchronized (loadLock(userId)) {
+            PlayHistory cached = cached(userId);
+            if (cached != null) {
+                cached.record(matchId, correctScore);
+            }
+        }
+    }
+
+    // walks from the least recently used entry, iterating does not count as access;
+    // also shrinks the map back once users pinned while it was full are unpinned
+    private void evictUnpinned(Map<Long, PlayHistory> histories, int maxUsers) {
+        Iterator<Long> userIds = histories.keySet().iterator();
+        while (histories.size() > maxUsers && userIds.hasNext()) {
+            if (!pinned.containsKey(userIds.next())) {
+                userIds.remove();
+            }
+        }
+    }
+
+    private PlayHistory cached(Long userId) {
+        synchronized (histories) {
+            return histories.get(userId);
+        }
+    }
+
+    private Object loadLock(Long userId) {
+        return loadLocks[Math.floorMod(userId.hashCode(), LOAD_LOCK_STRIPES)];
+    }
+
+    private PlayHistory load(Long userId) {
+        PlayHistory history = new PlayHistory();
+        List<Object[]> rows = userGameRepository.findPlayedMatchRows(userId);
+        for (Object[] row : rows) {
+            history.record((Long) row[0], Boolean.TRUE.equals(row[1]));
+        }
+        return history;
+    }
+
+    public static class PlayHistory {
+        private final MatchIdBitmap played = new MatchIdBitmap();
+        private final MatchIdBitmap incorrect = new MatchIdBitmap();
+
+        synchronized void record(long matchId, boolean correctScore) {
+            played.add(matchId);
+            if (!correctScore) {
+                incorrect.add(matchId);
+            }
+        }
+
+        /**
+         * Records a guess unless the match is already in the history.
+         * Returns false when the user already played it.
+         */
+        public synchronized boolean recordIfAbsent(long matchId, boolean correctScore) {
+            if (played.contains(matchId)) {
+                return false;
+            }
+            record(matchId, correctScore);
+            return true;
+        }
+
+        // undoes recordIfAbsent for a guess that could not be accepted
+        public synchronized void forget(long matchId) {
+            played.remove(matchId);
+            incorrect.remove(matchId);
+        }
+
+        public synchronized boolean hasPlayed(long matchId) {
+            return played.contains(matchId);
+        }
+
+        public synchronized long[] unplayed(long[] candidates) {
+            return played.andNot(candidates);
+        }
+
+        public synchronized long[] incorrect(long[] candidates) {
+            return incorrect.and(candidates);
+        }
+    }
+}
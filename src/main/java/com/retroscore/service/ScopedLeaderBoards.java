@@ -0,0 +1,93 @@
+package com.retroscore.service;
+
+import com.retroscore.enums.GameResult;
+import com.retroscore.event.GuessScoredEvent;
+import com.retroscore.repository.UserGameRepository;
+import com.retroscore.util.ScoreBoard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Leaderboards scoped to one season or one club, a {@link ScoreBoard} per scope.
+ * Loaded with one grouped query before the web server starts and from then on kept current only
+ * by the scored guesses, which already carry the match's season and both clubs. There is no
+ * periodic reload: the aggregation reads every game ever played, and the boards only ever grow
+ * through guesses.
+ */
+@Service
+public class ScopedLeaderBoards implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScopedLeaderBoards.class);
+
+    private final UserGameRepository userGameRepository;
+    private final LeaderBoardIndex leaderBoardIndex;
+
+    private final Map<Long, ScoreBoard> seasonBoards = new ConcurrentHashMap<>();
+    private final Map<Long, ScoreBoard> clubBoards = new ConcurrentHashMap<>();
+
+    public ScopedLeaderBoards(UserGameRepository userGameRepository, LeaderBoardIndex leaderBoardIndex) {
+        this.userGameRepository = userGameRepository;
+        this.leaderBoardIndex = leaderBoardIndex;
+    }
+
+    // built before the web server starts and before the guess writer and schedulers run,
+    // so no request sees an empty board and no guess is scored while the totals are read
+    @Override
+    public void afterSingletonsInstantiated() {
+        record(userGameRepository.findScopedTotals(), seasonBoards, clubBoards);
+        logger.info("Scoped leaderboards loaded for {} seasons and {} clubs", seasonBoards.size(), clubBoards.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGuessScored(GuessScoredEvent event) {
+        int exactScores = event.gameResult() == GameResult.EXACT_SCORE ? 1 : 0;
+        // the index has applied this guess first, so the user is in it
+        LocalDateTime joinedAt = leaderBoardIndex.find(event.userId()).map(LeaderBoardIndex.RankedUser::createdAt).orElse(null);
+        seasonBoards.computeIfAbsent(event.seasonId(), id -> new ScoreBoard())
+                .record(event.userId(), joinedAt, event.points(), 1, exactScores);
+        clubBoards.computeIfAbsent(event.homeTeamId(), id -> new ScoreBoard())
+                .record(event.userId(), joinedAt, event.points(), 1, exactScores);
+        clubBoards.computeIfAbsent(event.awayTeamId(), id -> new ScoreBoard())
+                .record(event.userId(), joinedAt, event.points(), 1, exactScores);
+    }
+
+    public Optional<ScoreBoard> season(Long seasonId) {
+        return Optional.ofNullable(seasonBoards.get(seasonId));
+    }
+
+    public Optional<ScoreBoard> club(Long clubId) {
+        return Optional.ofNullable(clubBoards.get(clubId));
+    }
+
+    // adds scoped total rows to the season and club boards they belong to
+    private static void record(List<Object[]> rows, Map<Long, ScoreBoard> seasons, Map<Long, ScoreBoard> clubs) {
+        for (Object[] row : rows) {
+            Map<Long, ScoreBoard> boards = "SEASON".equals(row[0]) ? seasons : clubs;
+            long scopeId = ((Number) row[1]).longValue();
+            long userId = ((Number) row[2]).longValue();
+            int games = ((Number) row[3]).intValue();
+            int exactScores = row[4] == null ? 0 : ((Number) row[4]).intValue();
+            int correctResults = row[5] == null ? 0 : ((Number) row[5]).intValue();
+            int points = exactScores * GameResult.EXACT_SCORE.getPoints() + correctResults * GameResult.CORRECT_RESULT.getPoints();
+            LocalDateTime joinedAt = toLocalDateTime(row[6]);
+            boards.computeIfAbsent(scopeId, id -> new ScoreBoard()).record(userId, joinedAt, points, games, exactScores);
+        }
+    }
+
+    // native TIMESTAMP columns may come back as java.sql.Timestamp
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof java.sql.Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+}
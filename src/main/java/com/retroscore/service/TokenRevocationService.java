@@ -0,0 +1,164 @@
+package com.retroscore.service;
+
+import com.retroscore.entity.RevokedToken;
+import com.retroscore.repository.RevokedTokenRepository;
+import com.retroscore.util.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ids ({@code jti}) of tokens revoked before they expired, for logout.
+ * Revocations are stored in {@code revoked_tokens} and held in memory until the token would
+ * have expired anyway, evicted in expiry order by a periodic purge. A revocation enters memory
+ * only once its row has committed, and every {@code jwt.revocation.sync-interval-ms} each instance
+ * reads the rows revoked since its watermark, so a logout on one instance holds on all of them.
+ * A Bloom filter sits in front of the set, so the check on every authenticated request is a
+ * few bit lookups and only the rare false positive touches the map. Nothing here hits the database per request.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+    // re-read this far behind the watermark, for rows that committed after a later one was seen
+    // and for clock drift between instances; already known revocations are skipped
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final int expectedEntries;
+    private final double falsePositiveRate;
+
+    // jti to the token's expiry in epoch millis
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    // guarded by itself, also serializes filter rebuilds with new revocations
+    private final PriorityQueue<Revocation> byExpiry = new PriorityQueue<>(Comparator.comparingLong(Revocation::expiresAt));
+    private volatile BloomFilter filter;
+    // latest revokedAt read from the table, only touched by the startup load and the scheduled sync
+    private LocalDateTime syncedUntil;
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  @Value("${jwt.revocation.bloom.expected-entries:100000}") int expectedEntries,
+                                  @Value("${jwt.revocation.bloom.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomFilter(expectedEntries, falsePositiveRate);
+    }
+
+    // before the web server takes requests, so a restart never lets a revoked token through
+    @PostConstruct
+    void loadRevocations() {
+        syncedUntil = LocalDateTime.now();
+        for (RevokedToken token : revokedTokenRepository.findByExpiresAtAfter(LocalDateTime.now())) {
+            rememberRow(token);
+        }
+        logger.info("Loaded {} token revocations", revoked.size());
+    }
+
+    /**
+     * Picks up revocations other instances committed since the last sync.
+     */
+    @Scheduled(initialDelayString = "${jwt.revocation.sync-interval-ms:5000}",
+            fixedDelayString = "${jwt.revocation.sync-interval-ms:5000}")
+    public void syncRevocations() {
+        LocalDateTime from = syncedUntil.minus(SYNC_OVERLAP);
+        int before = revoked.size();
+        for (RevokedToken token : revokedTokenRepository.findByRevokedAtAfterAndExpiresAtAfter(from, LocalDateTime.now())) {
+            rememberRow(token);
+        }
+        if (revoked.size() > before) {
+            logger.info("Synced {} token revocations from other instances", revoked.size() - before);
+        }
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null) {
+            return false;
+        }
+        return filter.mightContain(tokenId) && revoked.containsKey(tokenId);
+    }
+
+    /**
+     * Revokes the token with this id until its expiry, in memory once the row has committed,
+     * so a rolled-back logout never leaves this instance disagreeing with the others.
+     */
+    @Transactional
+    public void revoke(String tokenId, Date expiration) {
+        if (tokenId == null || expiration == null || revoked.containsKey(tokenId)) {
+            return;
+        }
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(expiration.toInstant(), ZoneId.systemDefault());
+        revokedTokenRepository.save(new RevokedToken(tokenId, expiresAt, LocalDateTime.now()));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remember(tokenId, expiration.getTime());
+            }
+        });
+    }
+
+    /**
+     * Drops revocations of tokens that have expired by now, in expiry order, and rebuilds the
+     * Bloom filter without them since a Bloom filter cannot forget values.
+     */
+    @Transactional
+    @Scheduled(initialDelayString = "${jwt.revocation.purge-interval-ms:3600000}",
+            fixedDelayString = "${jwt.revocation.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        int purged = 0;
+        synchronized (byExpiry) {
+            while (!byExpiry.isEmpty() && byExpiry.peek().expiresAt() <= now) {
+                revoked.remove(byExpiry.poll().tokenId());
+                purged++;
+            }
+            if (purged > 0) {
+                BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, revoked.size() * 2), falsePositiveRate);
+                revoked.keySet().forEach(rebuilt::add);
+                filter = rebuilt;
+            }
+        }
+        int deleted = revokedTokenRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0 || deleted > 0) {
+            logger.info("Purged {} expired token revocations ({} rows)", purged, deleted);
+        }
+    }
+
+    private void rememberRow(RevokedToken token) {
+        remember(token.getTokenId(), toEpochMillis(token.getExpiresAt()));
+        if (token.getRevokedAt().isAfter(syncedUntil)) {
+            syncedUntil = token.getRevokedAt();
+        }
+    }
+
+    private void remember(String tokenId, long expiresAt) {
+        synchronized (byExpiry) {
+            if (revoked.putIfAbsent(tokenId, expiresAt) == null) {
+                byExpiry.add(new Revocation(tokenId, expiresAt));
+                filter.add(tokenId);
+            }
+        }
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private record Revocation(String tokenId, long expiresAt) {
+    }
+}
@@ -0,0 +1,106 @@
+package com.retroscore.service;
+
+import com.retroscore.entity.User;
+import com.retroscore.event.UserUpdatedEvent;
+import com.retroscore.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Short-lived cache of the few user columns authentication needs, keyed by user id.
+ * Lets the JWT filter build a principal without loading the full {@code users} row on every request.
+ * Entries expire after {@code jwt.identity-cache.ttl-ms} and are dropped as soon as a profile or
+ * settings update commits; the least recently used users are evicted past {@code max-entries}.
+ */
+@Service
+public class UserIdentityCache {
+
+    private static final int LOAD_LOCK_STRIPES = 64;
+
+    private final UserRepository userRepository;
+    private final long ttlNanos;
+    // guarded by itself
+    private final Map<Long, Identity> identities;
+    private final Object[] loadLocks = new Object[LOAD_LOCK_STRIPES];
+
+    public UserIdentityCache(UserRepository userRepository,
+                             @Value("${jwt.identity-cache.ttl-ms:30000}") long ttlMs,
+                             @Value("${jwt.identity-cache.max-entries:10000}") int maxEntries) {
+        this.userRepository = userRepository;
+        this.ttlNanos = ttlMs * 1_000_000L;
+        this.identities = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Identity> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        for (int i = 0; i < LOAD_LOCK_STRIPES; i++) {
+            loadLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * The user's identity, loaded from the database when it is not cached or has expired.
+     * Empty when the user no longer exists.
+     */
+    public Optional<Identity> get(Long userId) {
+        Identity cached = cached(userId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        // invalidate takes the same lock, so a load that read the row before an update cannot be cached after it
+        synchronized (loadLock(userId)) {
+            // another request may have loaded the same user while we waited
+            cached = cached(userId);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+            long now = System.nanoTime();
+            Optional<Identity> loaded = userRepository.findById(userId).map(user -> Identity.of(user, now));
+            synchronized (identities) {
+                loaded.ifPresentOrElse(identity -> identities.put(userId, identity), () -> identities.remove(userId));
+            }
+            return loaded;
+        }
+    }
+
+    public void invalidate(Long userId) {
+        synchronized (loadLock(userId)) {
+            synchronized (identities) {
+                identities.remove(userId);
+            }
+        }
+    }
+
+    private Identity cached(Long userId) {
+        synchronized (identities) {
+            Identity cached = identities.get(userId);
+            return cached != null && System.nanoTime() - cached.loadedAt() < ttlNanos ? cached : null;
+        }
+    }
+
+    private Object loadLock(Long userId) {
+        return loadLocks[Math.floorMod(userId.hashCode(), LOAD_LOCK_STRIPES)];
+    }
+
+    // after commit, so a concurrent request cannot re-cache the row as it was before the update
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserUpdated(UserUpdatedEvent event) {
+        invalidate(event.userId());
+    }
+
+    public record Identity(Long userId, String email, String username, String googleId, String profilePicture,
+                           long loadedAt) {
+
+        static Identity of(User user, long loadedAt) {
+            return new Identity(user.getId(), user.getEmail(), user.getUsername(), user.getGoogleId(),
+                    user.getProfilePicture(), loadedAt);
+        }
+    }
+}
@@ -4,11 +4,13 @@ package com.retroscore.service;
 import com.retroscore.dto.GoogleUserInfo;
 import com.retroscore.dto.UserSettingsDto;
 import com.retroscore.entity.User;
+import com.retroscore.event.UserUpdatedEvent;
 import com.retroscore.enums.GameDifficulty;
 import com.retroscore.enums.TimerDurations;
 import com.retroscore.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
@@ -21,11 +23,13 @@ import java.util.Optional;
 @Service
 public class UserService {
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     public User findById(Long userId){
@@ -35,7 +39,9 @@ public class UserService {
     }
 
     public User updateUser(User user){
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        eventPublisher.publishEvent(new UserUpdatedEvent(saved.getId()));
+        return saved;
     }
 
     public UserSettingsDto getUserSettings(Long userId){
@@ -152,7 +158,7 @@ public class UserService {
             updateUserFromGoogleInfo(user, googleUserInfo);
 
             logger.info("Found existing user by Google ID: {}", user.getEmail());
-            return userRepository.save(user);
+            return updateUser(user);
         }
 
         // If not found by Google ID, try to find by email (user might have registered before)
@@ -165,7 +171,7 @@ public class UserService {
             updateUserFromGoogleInfo(user, googleUserInfo);
 
             logger.info("Linked Google account to existing user: {}", user.getEmail());
-            return userRepository.save(user);
+            return updateUser(user);
         }
 
         // Create new user from Google info
@@ -0,0 +1,52 @@
+package com.retroscore.util;
+
+import java.util.Locale;
+
+/**
+ * Reads an {@code Accept-Encoding} request header (RFC 9110, section 12.5.3).
+ * A coding counts as accepted only with a quality above zero; {@code gzip;q=0} refuses gzip,
+ * and an explicit entry for a coding takes precedence over {@code *}.
+ */
+public final class AcceptEncoding {
+
+    private AcceptEncoding() {
+    }
+
+    public static boolean acceptsGzip(String header) {
+        if (header == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double wildcard = null;
+        for (String entry : header.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = Math.max(gzip == null ? 0 : gzip, quality(parts));
+            } else if (coding.equals("*")) {
+                wildcard = quality(parts);
+            }
+        }
+        if (gzip != null) {
+            return gzip > 0;
+        }
+        return wildcard != null && wildcard > 0;
+    }
+
+    // 1 without a q parameter, 0 for a malformed one so a garbled header never gets a compressed body
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.length() > 2 && (parameter.charAt(0) == 'q' || parameter.charAt(0) == 'Q')
+                    && parameter.charAt(1) == '=') {
+                try {
+                    double q = Double.parseDouble(parameter.substring(2).trim());
+                    return q >= 0 && q <= 1 ? q : 0;
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
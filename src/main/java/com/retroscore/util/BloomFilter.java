@@ -0,0 +1,75 @@
+package com.retroscore.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over strings, sized for an expected number of entries and false positive rate.
+ * {@link #mightContain} never misses an added value and is wrong the other way about
+ * {@code falsePositiveRate} of the time. Values cannot be removed; build a new filter instead.
+ * Safe for concurrent adds and lookups without locking.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final int bits;
+    private final int hashes;
+
+    public BloomFilter(int expectedEntries, double falsePositiveRate) {
+        int n = Math.max(expectedEntries, 1);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = (int) Math.min(Math.max(m, 64), Integer.MAX_VALUE - 63);
+        this.hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        this.words = new AtomicLongArray((bits + 63) >>> 6);
+    }
+
+    public void add(String value) {
+        long hash = hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashes; i++) {
+            int bit = index(h1 + i * h2);
+            long mask = 1L << bit;
+            int word = bit >>> 6;
+            long current;
+            while (((current = words.get(word)) & mask) == 0) {
+                if (words.compareAndSet(word, current, current | mask)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashes; i++) {
+            int bit = index(h1 + i * h2);
+            if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Kirsch-Mitzenmacher: the k probes are derived from the two halves of one 64-bit hash
+    private int index(int combined) {
+        return (combined & Integer.MAX_VALUE) % bits;
+    }
+
+    // FNV-1a over the UTF-8 bytes followed by a murmur3 finalizer to spread the bits
+    private static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb3fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,185 @@
+package com.retroscore.util;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of match ids, laid out like a Roaring bitmap.
+ * Ids are split into a 16-bit high key and a 16-bit low part; each key owns a container
+ * that is a sorted char array while sparse and switches to a 65536-bit bitmap past
+ * {@link #ARRAY_CONTAINER_MAX} entries.
+ * Not thread safe, callers guard concurrent access.
+ */
+public class MatchIdBitmap {
+
+    private static final int ARRAY_CONTAINER_MAX = 4096;
+
+    private long[] keys = new long[4];
+    private Container[] containers = new Container[4];
+    private int size;
+
+    public void add(long id) {
+        long key = id >>> 16;
+        char low = (char) id;
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        if (i < 0) {
+            i = -i - 1;
+            insertContainer(i, key, new ArrayContainer());
+        }
+        containers[i] = containers[i].add(low);
+    }
+
+    public void remove(long id) {
+        int i = Arrays.binarySearch(keys, 0, size, id >>> 16);
+        if (i >= 0) {
+            containers[i].remove((char) id);
+        }
+    }
+
+    public boolean contains(long id) {
+        int i = Arrays.binarySearch(keys, 0, size, id >>> 16);
+        return i >= 0 && containers[i].contains((char) id);
+    }
+
+    public int cardinality() {
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            total += containers[i].cardinality();
+        }
+        return total;
+    }
+
+    /**
+     * Ids from {@code candidates} that are in this bitmap, keeping candidate order.
+     */
+    public long[] and(long[] candidates) {
+        return filter(candidates, true);
+    }
+
+    /**
+     * Ids from {@code candidates} that are not in this bitmap, keeping candidate order.
+     */
+    public long[] andNot(long[] candidates) {
+        return filter(candidates, false);
+    }
+
+    private long[] filter(long[] candidates, boolean keepMembers) {
+        long[] result = new long[candidates.length];
+        int count = 0;
+        for (long id : candidates) {
+            if (contains(id) == keepMembers) {
+                result[count++] = id;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    private void insertContainer(int index, long key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private interface Container {
+        // returns the container to keep, which may be a converted one
+        Container add(char value);
+
+        void remove(char value);
+
+        boolean contains(char value);
+
+        int cardinality();
+    }
+
+    private static final class ArrayContainer implements Container {
+        private char[] values = new char[4];
+        private int cardinality;
+
+        @Override
+        public Container add(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_CONTAINER_MAX) {
+                return toBitmap().add(value);
+            }
+            i = -i - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(cardinality * 2, ARRAY_CONTAINER_MAX));
+            }
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        public void remove(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) {
+                System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+                cardinality--;
+            }
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer implements Container {
+        private final long[] words = new long[1024];
+        private int cardinality;
+
+        @Override
+        public Container add(char value) {
+            long before = words[value >>> 6];
+            long after = before | (1L << value);
+            if (before != after) {
+                words[value >>> 6] = after;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        public void remove(char value) {
+            long before = words[value >>> 6];
+            long after = before & ~(1L << value);
+            if (before != after) {
+                words[value >>> 6] = after;
+                cardinality--;
+            }
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+    }
+}
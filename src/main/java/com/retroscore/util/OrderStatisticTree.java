@@ -0,0 +1,206 @@
+package com.retroscore.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sorted set with positional access, implemented as a treap where every node knows
+ * the size of its subtree. Insert, remove, {@link #rank} and {@link #get} are O(log n)
+ * expected, {@link #range} is O(log n + k).
+ * Not thread safe, callers guard concurrent access.
+ */
+public class OrderStatisticTree<T> {
+
+    private final Comparator<? super T> comparator;
+    private Node<T> root;
+
+    public OrderStatisticTree(Comparator<? super T> comparator) {
+        this.comparator = comparator;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean contains(T value) {
+        Node<T> node = root;
+        while (node != null) {
+            int cmp = comparator.compare(value, node.value);
+            if (cmp == 0) {
+                return true;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return false;
+    }
+
+    /**
+     * Adds the value, returns false if an equal value is already present.
+     */
+    public boolean add(T value) {
+        if (contains(value)) {
+            return false;
+        }
+        Split<T> split = split(root, value);
+        root = merge(merge(split.less, new Node<>(value)), split.rest);
+        return true;
+    }
+
+    public boolean remove(T value) {
+        Split<T> split = split(root, value);
+        Split<T> first = splitFirst(split.rest);
+        if (first.less != null && comparator.compare(first.less.value, value) == 0) {
+            root = merge(split.less, first.rest);
+            return true;
+        }
+        root = merge(split.less, merge(first.less, first.rest));
+        return false;
+    }
+
+    /**
+     * Number of values strictly less than {@code value}, which does not have to be present.
+     */
+    public int rank(T value) {
+        int rank = 0;
+        Node<T> node = root;
+        while (node != null) {
+            if (comparator.compare(value, node.value) <= 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Value at the given 0-based position.
+     */
+    public T get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        Node<T> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.value;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Values at positions {@code fromIndex} (inclusive) to {@code toIndex} (exclusive), in order.
+     * Bounds are clamped to the tree size.
+     */
+    public List<T> range(int fromIndex, int toIndex) {
+        int from = Math.max(0, fromIndex);
+        int to = Math.min(toIndex, size());
+        List<T> values = new ArrayList<>(Math.max(0, to - from));
+        collect(root, from, to, values);
+        return values;
+    }
+
+    public void clear() {
+        root = null;
+    }
+
+    private void collect(Node<T> node, int from, int to, List<T> values) {
+        if (node == null || from >= to) {
+            return;
+        }
+        int leftSize = size(node.left);
+        if (from < leftSize) {
+            collect(node.left, from, Math.min(to, leftSize), values);
+        }
+        if (from <= leftSize && leftSize < to) {
+            values.add(node.value);
+        }
+        if (to > leftSize + 1) {
+            collect(node.right, Math.max(0, from - leftSize - 1), to - leftSize - 1, values);
+        }
+    }
+
+    // splits into values less than the key and the rest
+    private Split<T> split(Node<T> node, T key) {
+        if (node == null) {
+            return new Split<>(null, null);
+        }
+        if (comparator.compare(node.value, key) < 0) {
+            Split<T> right = split(node.right, key);
+            node.right = right.less;
+            node.update();
+            return new Split<>(node, right.rest);
+        }
+        Split<T> left = split(node.left, key);
+        node.left = left.rest;
+        node.update();
+        return new Split<>(left.less, node);
+    }
+
+    // splits off the smallest value as a single node
+    private Split<T> splitFirst(Node<T> node) {
+        if (node == null) {
+            return new Split<>(null, null);
+        }
+        if (node.left == null) {
+            Node<T> rest = node.right;
+            node.right = null;
+            node.update();
+            return new Split<>(node, rest);
+        }
+        Split<T> left = splitFirst(node.left);
+        node.left = left.rest;
+        node.update();
+        return new Split<>(left.less, node);
+    }
+
+    // every value in left is less than every value in right
+    private Node<T> merge(Node<T> left, Node<T> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private record Split<T>(Node<T> less, Node<T> rest) {
+    }
+
+    private static final class Node<T> {
+        final T value;
+        final int priority = ThreadLocalRandom.current().nextInt();
+        Node<T> left;
+        Node<T> right;
+        int size = 1;
+
+        Node(T value) {
+            this.value = value;
+        }
+
+        void update() {
+            size = 1 + size(left) + size(right);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.retroscore.util;
+
+import java.util.Arrays;
+
+/**
+ * Number of users per points total, with prefix sums kept in a Fenwick tree so
+ * "how many users have more points than p" is O(log maxPoints).
+ * Grows to fit the highest total it has seen.
+ * Not thread safe, callers guard concurrent access.
+ */
+public class PointsHistogram {
+
+    private long[] counts = new long[64];
+    // fenwick[i] covers counts[i - lowbit(i) .. i - 1]
+    private long[] fenwick = new long[65];
+    private long total;
+
+    public void add(int points) {
+        update(points, 1);
+    }
+
+    public void remove(int points) {
+        update(points, -1);
+    }
+
+    public void move(int fromPoints, int toPoints) {
+        if (fromPoints != toPoints) {
+            remove(fromPoints);
+            add(toPoints);
+        }
+    }
+
+    public long total() {
+        return total;
+    }
+
+    public long countWithPoints(int points) {
+        return points >= 0 && points < counts.length ? counts[points] : 0;
+    }
+
+    /**
+     * Number of users with strictly more than {@code points}.
+     */
+    public long countAbove(int points) {
+        if (points < 0) {
+            return total;
+        }
+        return total - countAtMost(Math.min(points, counts.length - 1));
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(fenwick, 0);
+        total = 0;
+    }
+
+    private long countAtMost(int points) {
+        long sum = 0;
+        for (int i = points + 1; i > 0; i -= i & -i) {
+            sum += fenwick[i];
+        }
+        return sum;
+    }
+
+    private void update(int points, long delta) {
+        if (points < 0) {
+            throw new IllegalArgumentException("points must not be negative: " + points);
+        }
+        if (points >= counts.length) {
+            grow(points);
+        }
+        counts[points] += delta;
+        total += delta;
+        for (int i = points + 1; i < fenwick.length; i += i & -i) {
+            fenwick[i] += delta;
+        }
+    }
+
+    private void grow(int points) {
+        int capacity = counts.length;
+        while (capacity <= points) {
+            capacity *= 2;
+        }
+        counts = Arrays.copyOf(counts, capacity);
+        // rebuild in O(n): push each node's sum into its parent
+        fenwick = new long[capacity + 1];
+        for (int i = 1; i <= capacity; i++) {
+            fenwick[i] += counts[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                fenwick[parent] += fenwick[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.retroscore.util;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Ranked per-user point totals for one competition (a period, a season, a club).
+ * Ordered by points desc, then join date, then user id, the same tie-break as the all-time
+ * board so tied users line up the same way everywhere. Page ranks are positional, single-user
+ * ranks are competition ranks (users with more points + 1), as on the all-time leaderboard.
+ */
+public class ScoreBoard {
+
+    private static final Comparator<Score> ORDER = Comparator.comparingInt(Score::points).reversed()
+            .thenComparing(Score::joinedAt, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingLong(Score::userId);
+
+    private final Map<Long, Score> scores = new HashMap<>();
+    private final OrderStatisticTree<Score> ranking = new OrderStatisticTree<>(ORDER);
+    private final PointsHistogram histogram = new PointsHistogram();
+
+    /**
+     * Adds games and points to a user's score, creating it on first use.
+     * {@code joinedAt} is the user's account creation time, only read when the score is created.
+     */
+    public synchronized void record(long userId, LocalDateTime joinedAt, int points, int games, int exactScores) {
+        Score current = scores.get(userId);
+        Score updated;
+        if (current == null) {
+            updated = new Score(userId, joinedAt, points, games, exactScores);
+        } else {
+            ranking.remove(current);
+            histogram.remove(current.points());
+            updated = new Score(userId, current.joinedAt(), current.points() + points, current.games() + games,
+                    current.exactScores() + exactScores);
+        }
+        scores.put(userId, updated);
+        ranking.add(updated);
+        histogram.add(updated.points());
+    }
+
+    // drops a user's score, e.g. to record it again from fresh totals
+    public synchronized void remove(long userId) {
+        Score current = scores.remove(userId);
+        if (current != null) {
+            ranking.remove(current);
+            histogram.remove(current.points());
+        }
+    }
+
+    public synchronized int size() {
+        return ranking.size();
+    }
+
+    public synchronized List<Standing> page(int page, int size) {
+        int from = (int) Math.min((long) page * size, Integer.MAX_VALUE);
+        List<Score> window = ranking.range(from, (int) Math.min((long) from + size, Integer.MAX_VALUE));
+        List<Standing> standings = new ArrayList<>(window.size());
+        for (int i = 0; i < window.size(); i++) {
+            standings.add(new Standing(window.get(i), (long) from + i + 1));
+        }
+        return standings;
+    }
+
+    public synchronized Optional<Standing> standing(long userId) {
+        Score score = scores.get(userId);
+        return score == null ? Optional.empty() : Optional.of(new Standing(score, histogram.countAbove(score.points()) + 1));
+    }
+
+    // rank a user with this many points would have, also for users not on the board yet
+    public synchronized long rankForPoints(int points) {
+        return histogram.countAbove(points) + 1;
+    }
+
+    public synchronized void clear() {
+        scores.clear();
+        ranking.clear();
+        histogram.clear();
+    }
+
+    public record Score(long userId, LocalDateTime joinedAt, int points, int games, int exactScores) {
+    }
+
+    public record Standing(Score score, long rank) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.retroscore;
+
+import com.retroscore.config.IdSequenceInitializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+/**
+ * Base of the tests that run against the full application on the in-memory H2 database of the
+ * test profile. Keep the configuration here so every such test shares one cached context,
+ * and with it one schema.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestFixtures.class)
+public abstract class IntegrationTest {
+
+	// Postgres-specific (setval), and the schema is created fresh for the tests
+	@MockitoBean
+	IdSequenceInitializer idSequenceInitializer;
+
+	@Autowired
+	protected TestFixtures fixtures;
+}
@@ -0,0 +1,81 @@
+package com.retroscore;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JDK {@link HttpServer} on a free loopback port standing in for Google's endpoints.
+ * Each path answers with the last {@link #respond} given for it and counts its requests;
+ * unknown paths answer 404. Close it after the test.
+ */
+public class StubHttpServer implements AutoCloseable {
+
+	private final HttpServer server;
+	private final Map<String, Reply> replies = new ConcurrentHashMap<>();
+	private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+
+	public StubHttpServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", this::handle);
+		// a slow reply must not hold up the others
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+	}
+
+	public String url(String path) {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+	}
+
+	public void respond(String path, int status, String body) {
+		respond(path, status, body, null, 0);
+	}
+
+	public void respond(String path, int status, String body, String cacheControl, long delayMs) {
+		replies.put(path, new Reply(status, body, cacheControl, delayMs));
+	}
+
+	public int requests(String path) {
+		AtomicInteger count = requests.get(path);
+		return count == null ? 0 : count.get();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		requests.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+		Reply reply = replies.getOrDefault(path, new Reply(404, "{}", null, 0));
+		try {
+			Thread.sleep(reply.delayMs());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		byte[] body = reply.body().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		if (reply.cacheControl() != null) {
+			exchange.getResponseHeaders().set("Cache-Control", reply.cacheControl());
+		}
+		exchange.sendResponseHeaders(reply.status(), body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		} catch (IOException e) {
+			// the client gave up waiting
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+
+	private record Reply(int status, String body, String cacheControl, long delayMs) {
+	}
+}
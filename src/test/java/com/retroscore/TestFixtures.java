@@ -0,0 +1,93 @@
+package com.retroscore;
+
+import com.retroscore.dto.UserGuessDto;
+import com.retroscore.entity.FootballClub;
+import com.retroscore.entity.Match;
+import com.retroscore.entity.Season;
+import com.retroscore.entity.User;
+import com.retroscore.repository.FootballClubRepository;
+import com.retroscore.repository.MatchRepository;
+import com.retroscore.repository.SeasonRepository;
+import com.retroscore.repository.UserRepository;
+import org.springframework.boot.test.context.TestComponent;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Saves users, seasons, clubs and matches with unique names, for integration tests that share
+ * one in-memory database. Pull it in with {@code @Import(TestFixtures.class)}.
+ */
+@TestComponent
+public class TestFixtures {
+
+	private final UserRepository userRepository;
+	private final SeasonRepository seasonRepository;
+	private final FootballClubRepository footballClubRepository;
+	private final MatchRepository matchRepository;
+
+	public TestFixtures(UserRepository userRepository, SeasonRepository seasonRepository,
+						FootballClubRepository footballClubRepository, MatchRepository matchRepository) {
+		this.userRepository = userRepository;
+		this.seasonRepository = seasonRepository;
+		this.footballClubRepository = footballClubRepository;
+		this.matchRepository = matchRepository;
+	}
+
+	public User user() {
+		return user(LocalDateTime.now());
+	}
+
+	public User user(LocalDateTime createdAt) {
+		return user(createdAt, 0);
+	}
+
+	// the counters are only insertable, so a user starts on totalPoints without playing
+	public User user(LocalDateTime createdAt, int totalPoints) {
+		String name = "player-" + UUID.randomUUID();
+		User user = new User();
+		user.setUsername(name);
+		user.setEmail(name + "@example.com");
+		user.setCreatedAt(createdAt);
+		user.setTotalPoints(totalPoints);
+		return userRepository.save(user);
+	}
+
+	public Season season() {
+		Season season = new Season();
+		season.setSeasonName("season-" + UUID.randomUUID());
+		return seasonRepository.save(season);
+	}
+
+	public FootballClub club() {
+		FootballClub club = new FootballClub();
+		club.setName("club-" + UUID.randomUUID());
+		club.setStadiumName("stadium-" + UUID.randomUUID());
+		return footballClubRepository.save(club);
+	}
+
+	// final score 2-1
+	public Match match(Season season) {
+		return match(season, club(), club());
+	}
+
+	public Match match(Season season, FootballClub homeTeam, FootballClub awayTeam) {
+		Match match = new Match();
+		match.setSeason(season);
+		match.setHomeTeam(homeTeam);
+		match.setAwayTeam(awayTeam);
+		match.setMatchDate(LocalDate.of(2004, 5, 15));
+		match.setHomeScore(2);
+		match.setAwayScore(1);
+		return matchRepository.save(match);
+	}
+
+	public static UserGuessDto guess(Long matchId, int homeScore, int awayScore) {
+		UserGuessDto guess = new UserGuessDto();
+		guess.setMatchId(matchId);
+		guess.setPredictedHomeScore(homeScore);
+		guess.setPredictedAwayScore(awayScore);
+		return guess;
+	}
+}
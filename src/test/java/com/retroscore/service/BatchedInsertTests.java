@@ -0,0 +1,62 @@
+package com.retroscore.service;
+
+import com.retroscore.IntegrationTest;
+import com.retroscore.entity.FootballClub;
+import com.retroscore.entity.Match;
+import com.retroscore.entity.Season;
+import com.retroscore.repository.MatchRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ids come from pooled sequences, so Hibernate can batch inserts: saving many rows prepares a
+ * statement per batch and fetches a sequence value per 50 ids, not one of each per row.
+ */
+class BatchedInsertTests extends IntegrationTest {
+
+	private static final int MATCHES = 120;
+
+	@Autowired
+	MatchRepository matchRepository;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void manyMatchesAreInsertedInBatches() {
+		Season season = fixtures.season();
+		FootballClub home = fixtures.club();
+		FootballClub away = fixtures.club();
+		List<Match> matches = new ArrayList<>();
+		for (int i = 0; i < MATCHES; i++) {
+			Match match = new Match();
+			match.setSeason(season);
+			match.setHomeTeam(home);
+			match.setAwayTeam(away);
+			match.setMatchDate(LocalDate.of(2004, 5, 15).plusDays(i));
+			match.setHomeScore(i % 4);
+			match.setAwayScore(i % 3);
+			matches.add(match);
+		}
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		matchRepository.saveAll(matches);
+		long prepared = statistics.getPrepareStatementCount();
+
+		assertEquals(MATCHES, statistics.getEntityInsertCount());
+		// 3 insert batches of up to 50 and a few sequence calls, against 240 statements one row at a time
+		assertTrue(prepared <= 10, "prepared " + prepared + " statements for " + MATCHES + " inserts");
+		assertEquals(MATCHES, matchRepository.findBySeasonId(season.getId()).size());
+	}
+}
@@ -0,0 +1,73 @@
+package com.retroscore.service;
+
+import com.retroscore.IntegrationTest;
+import com.retroscore.TestFixtures;
+import com.retroscore.exception.UserAlreadyPlayedException;
+import com.retroscore.repository.UserGameRepository;
+import com.retroscore.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+class GameServiceConcurrencyTests extends IntegrationTest {
+
+	private static final int THREADS = 8;
+
+	@Autowired
+	GameService gameService;
+
+	@Autowired
+	UserRepository userRepository;
+
+	@Autowired
+	UserGameRepository userGameRepository;
+
+	@Test
+	void simultaneousGuessesForTheSameMatchRecordOneGame() throws Exception {
+		Long userId = fixtures.user().getId();
+		Long matchId = fixtures.match(fixtures.season()).getId();
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> submissions = new ArrayList<>();
+		try {
+			for (int i = 0; i < THREADS; i++) {
+				submissions.add(executor.submit(() -> {
+					start.await();
+					return gameService.submitGuess(userId, TestFixtures.guess(matchId, 2, 1));
+				}));
+			}
+			start.countDown();
+
+			int accepted = 0;
+			for (Future<?> submission : submissions) {
+				try {
+					submission.get(30, TimeUnit.SECONDS);
+					accepted++;
+				} catch (ExecutionException e) {
+					// every other double-tap must be reported as already played, not as a server error
+					assertInstanceOf(UserAlreadyPlayedException.class, e.getCause());
+				}
+			}
+
+			assertEquals(1, accepted);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(1, userGameRepository.findByUserId(userId).size());
+		// the stats update of each rejected guess rolled back with its insert
+		assertEquals(1, (int) userRepository.findById(userId).orElseThrow().getGamesPlayed());
+	}
+}
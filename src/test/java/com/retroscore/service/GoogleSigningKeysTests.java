@@ -0,0 +1,131 @@
+package com.retroscore.service;
+
+import com.retroscore.StubHttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GoogleSigningKeysTests {
+
+	private static final String CERTS = "/certs";
+
+	private final KeyPair first = rsaKeyPair();
+	private final KeyPair second = rsaKeyPair();
+
+	private StubHttpServer google;
+
+	@BeforeEach
+	void startGoogle() throws Exception {
+		google = new StubHttpServer();
+	}
+
+	@AfterEach
+	void stopGoogle() {
+		google.close();
+	}
+
+	@Test
+	void unknownKidRefreshesTheKeySet() {
+		google.respond(CERTS, 200, jwks(Map.of("first", first)));
+		GoogleSigningKeys keys = signingKeys(0);
+
+		assertEquals(first.getPublic(), keys.find("first").orElseThrow());
+		assertEquals(first.getPublic(), keys.find("first").orElseThrow());
+		assertEquals(1, google.requests(CERTS));
+
+		// Google rotated in a second key
+		google.respond(CERTS, 200, jwks(Map.of("first", first, "second", second)));
+		assertEquals(second.getPublic(), keys.find("second").orElseThrow());
+		assertEquals(2, google.requests(CERTS));
+	}
+
+	@Test
+	void keySetExpiresAfterCacheControlMaxAge() throws Exception {
+		google.respond(CERTS, 200, jwks(Map.of("first", first)), "public, max-age=1, must-revalidate", 0);
+		GoogleSigningKeys keys = signingKeys(0);
+
+		assertTrue(keys.find("first").isPresent());
+		assertTrue(keys.find("first").isPresent());
+		assertEquals(1, google.requests(CERTS));
+
+		Thread.sleep(1_100);
+		assertTrue(keys.find("first").isPresent());
+		assertEquals(2, google.requests(CERTS));
+	}
+
+	@Test
+	void unknownKidsCannotDriveRequestsWithinTheMinimumInterval() {
+		google.respond(CERTS, 200, jwks(Map.of("first", first)));
+		GoogleSigningKeys keys = signingKeys(60_000);
+
+		assertTrue(keys.find("first").isPresent());
+		for (int i = 0; i < 20; i++) {
+			assertFalse(keys.find("made-up-" + i).isPresent());
+		}
+		assertEquals(1, google.requests(CERTS));
+	}
+
+	@Test
+	void failedRefreshKeepsTheKeysAlreadyLoaded() {
+		// expired as soon as it is loaded, so every lookup tries a refresh
+		google.respond(CERTS, 200, jwks(Map.of("first", first)), "max-age=0", 0);
+		GoogleSigningKeys keys = signingKeys(0);
+		assertTrue(keys.find("first").isPresent());
+
+		google.respond(CERTS, 503, "{\"error\":\"backendError\"}");
+		assertEquals(first.getPublic(), keys.find("first").orElseThrow());
+		assertEquals(2, google.requests(CERTS));
+
+		google.respond(CERTS, 200, "not json");
+		assertEquals(first.getPublic(), keys.find("first").orElseThrow());
+		assertEquals(3, google.requests(CERTS));
+	}
+
+	private GoogleSigningKeys signingKeys(long minRefreshIntervalMs) {
+		return new GoogleSigningKeys(google.url(CERTS), 1_000, 2_000, 3_600_000, minRefreshIntervalMs);
+	}
+
+	static KeyPair rsaKeyPair() {
+		try {
+			KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+			generator.initialize(2048);
+			return generator.generateKeyPair();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// the JWKS document Google publishes, one RSA key per kid
+	static String jwks(Map<String, KeyPair> keys) {
+		return keys.entrySet().stream()
+				.map(entry -> {
+					RSAPublicKey key = (RSAPublicKey) entry.getValue().getPublic();
+					return "{\"kty\":\"RSA\",\"alg\":\"RS256\",\"use\":\"sig\",\"kid\":\"" + entry.getKey() + "\"," +
+							"\"n\":\"" + base64Url(key.getModulus()) + "\",\"e\":\"" + base64Url(key.getPublicExponent()) + "\"}";
+				})
+				.collect(Collectors.joining(",", "{\"keys\":[", "]}"));
+	}
+
+	// unsigned big-endian, as JWK encodes RSA parameters
+	private static String base64Url(BigInteger value) {
+		byte[] bytes = value.toByteArray();
+		if (bytes[0] == 0 && bytes.length > 1) {
+			bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+		}
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+	}
+}
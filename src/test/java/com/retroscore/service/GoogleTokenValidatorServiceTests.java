@@ -0,0 +1,212 @@
+package com.retroscore.service;
+
+import com.retroscore.StubHttpServer;
+import com.retroscore.dto.GoogleUserInfo;
+import com.retroscore.exception.GoogleAuthUnavailableException;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.KeyPair;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GoogleTokenValidatorServiceTests {
+
+	private static final String CERTS = "/certs";
+	private static final String TOKEN_INFO = "/tokeninfo";
+	private static final String USER_INFO = "/userinfo";
+	private static final String ACCESS_TOKEN = "ya29.access-token";
+	private static final String WEB_CLIENT_ID = "web-client.apps.googleusercontent.com";
+
+	private final KeyPair googleKey = GoogleSigningKeysTests.rsaKeyPair();
+
+	private StubHttpServer google;
+	private GoogleTokenValidatorService validator;
+
+	@BeforeEach
+	void startGoogle() throws Exception {
+		google = new StubHttpServer();
+		google.respond(CERTS, 200, GoogleSigningKeysTests.jwks(Map.of("google-key", googleKey)));
+		validator = validator(32, 100, 2_000);
+	}
+
+	@AfterEach
+	void stopGoogle() {
+		google.close();
+	}
+
+	@Test
+	void acceptsIdTokenSignedByGoogle() {
+		GoogleUserInfo user = validator.validate(idToken().signWith(googleKey.getPrivate()).compact());
+
+		assertNotNull(user);
+		assertEquals("google-sub", user.getSub());
+		assertEquals("player@example.com", user.getEmail());
+		assertTrue(user.isEmailVerified());
+	}
+
+	@Test
+	void rejectsIdTokenSignedByAnotherKey() {
+		KeyPair forger = GoogleSigningKeysTests.rsaKeyPair();
+
+		// Google's kid with someone else's signature
+		assertNull(validator.validate(idToken().signWith(forger.getPrivate()).compact()));
+		// a kid Google does not publish
+		assertNull(validator.validate(idToken().header().keyId("forged-key").and().signWith(forger.getPrivate()).compact()));
+	}
+
+	@Test
+	void rejectsIdTokenForAnotherAudience() {
+		String token = idToken().audience().single("someone-else.apps.googleusercontent.com")
+				.signWith(googleKey.getPrivate()).compact();
+
+		assertNull(validator.validate(token));
+	}
+
+	@Test
+	void rejectsIdTokenFromAnotherIssuer() {
+		String token = idToken().issuer("https://accounts.example.com").signWith(googleKey.getPrivate()).compact();
+
+		assertNull(validator.validate(token));
+	}
+
+	@Test
+	void rejectsIdTokenWithUnverifiedEmail() {
+		String token = idToken().claim("email_verified", false).signWith(googleKey.getPrivate()).compact();
+
+		assertNull(validator.validate(token));
+	}
+
+	@Test
+	void rejectsExpiredIdToken() {
+		Instant issued = Instant.now().minus(2, ChronoUnit.HOURS);
+		String token = idToken().issuedAt(Date.from(issued)).expiration(Date.from(issued.plus(1, ChronoUnit.HOURS)))
+				.signWith(googleKey.getPrivate()).compact();
+
+		assertNull(validator.validate(token));
+	}
+
+	@Test
+	void tokenInfoAndUserInfoAreFetchedConcurrently() {
+		accessTokenAccepted(500);
+
+		long started = System.nanoTime();
+		GoogleUserInfo user = validator.validate(ACCESS_TOKEN);
+		long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+		assertNotNull(user);
+		assertEquals("google-sub", user.getSub());
+		// one round of 500 ms, not two after each other
+		assertTrue(elapsedMs < 900, "took " + elapsedMs + " ms");
+	}
+
+	@Test
+	void validatedAccessTokenIsAnsweredFromTheCache() {
+		accessTokenAccepted(0);
+
+		assertNotNull(validator.validate(ACCESS_TOKEN));
+		assertNotNull(validator.validate(ACCESS_TOKEN));
+
+		assertEquals(1, google.requests(TOKEN_INFO));
+		assertEquals(1, google.requests(USER_INFO));
+	}
+
+	@Test
+	void invalidAccessTokenIsNullAndNotCached() {
+		google.respond(TOKEN_INFO, 400, "{\"error\":\"invalid_token\"}");
+		google.respond(USER_INFO, 401, "{\"error\":\"invalid_token\"}");
+
+		assertNull(validator.validate(ACCESS_TOKEN));
+		assertNull(validator.validate(ACCESS_TOKEN));
+
+		assertEquals(2, google.requests(TOKEN_INFO));
+	}
+
+	@Test
+	void saturatedBulkheadAnswersUnavailable() throws Exception {
+		GoogleTokenValidatorService oneAtATime = validator(1, 50, 5_000);
+		accessTokenAccepted(1_000);
+
+		CompletableFuture<GoogleUserInfo> first = CompletableFuture.supplyAsync(() -> oneAtATime.validate(ACCESS_TOKEN));
+		await(() -> google.requests(TOKEN_INFO) == 1);
+
+		// the only slot is taken, so the second login gives up after 50 ms without calling Google
+		assertThrows(GoogleAuthUnavailableException.class, () -> oneAtATime.validate("ya29.another-token"));
+		assertEquals(1, google.requests(TOKEN_INFO));
+		assertNotNull(first.get());
+		// and the slot is free again once the first is done
+		assertNotNull(oneAtATime.validate("ya29.another-token"));
+	}
+
+	@Test
+	void googleServerErrorIsUnavailableRatherThanInvalid() {
+		google.respond(TOKEN_INFO, 503, "{}");
+		google.respond(USER_INFO, 503, "{}");
+
+		assertThrows(GoogleAuthUnavailableException.class, () -> validator.validate(ACCESS_TOKEN));
+	}
+
+	@Test
+	void slowGoogleTimesOutAsUnavailable() {
+		GoogleTokenValidatorService impatient = validator(32, 100, 200);
+		accessTokenAccepted(2_000);
+
+		long started = System.nanoTime();
+		assertThrows(GoogleAuthUnavailableException.class, () -> impatient.validate(ACCESS_TOKEN));
+		assertTrue((System.nanoTime() - started) / 1_000_000 < 1_500);
+	}
+
+	private GoogleTokenValidatorService validator(int maxConcurrent, long bulkheadWaitMs, long requestTimeoutMs) {
+		GoogleSigningKeys signingKeys = new GoogleSigningKeys(google.url(CERTS), 1_000, 2_000, 3_600_000, 0);
+		GoogleTokenValidatorService service = new GoogleTokenValidatorService(signingKeys, 60,
+				google.url(TOKEN_INFO), google.url(USER_INFO), 1_000, requestTimeoutMs, maxConcurrent, bulkheadWaitMs,
+				60_000, 100);
+		ReflectionTestUtils.setField(service, "webClientId", WEB_CLIENT_ID);
+		ReflectionTestUtils.setField(service, "androidClientId", "");
+		return service;
+	}
+
+	// both endpoints accept the access token, each answering after delayMs
+	private void accessTokenAccepted(long delayMs) {
+		google.respond(TOKEN_INFO, 200, "{\"audience\":\"" + WEB_CLIENT_ID + "\",\"expires_in\":3600}", null, delayMs);
+		google.respond(USER_INFO, 200, "{\"id\":\"google-sub\",\"email\":\"player@example.com\","
+				+ "\"verified_email\":true,\"name\":\"Player One\"}", null, delayMs);
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + 5_000_000_000L;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "condition not met within 5 s");
+			Thread.sleep(10);
+		}
+	}
+
+	// a valid ID token as Google issues it, tests override the claim under test
+	private JwtBuilder idToken() {
+		Instant now = Instant.now();
+		return Jwts.builder()
+				.header().keyId("google-key").and()
+				.issuer("https://accounts.google.com")
+				.audience().single(WEB_CLIENT_ID)
+				.subject("google-sub")
+				.claim("email", "player@example.com")
+				.claim("email_verified", true)
+				.claim("name", "Player One")
+				.issuedAt(Date.from(now))
+				.expiration(Date.from(now.plus(1, ChronoUnit.HOURS)));
+	}
+}
@@ -0,0 +1,192 @@
+package com.retroscore.service;
+
+import com.retroscore.IntegrationTest;
+import com.retroscore.TestFixtures;
+import com.retroscore.entity.Match;
+import com.retroscore.entity.Season;
+import com.retroscore.entity.User;
+import com.retroscore.exception.GuessQueueFullException;
+import com.retroscore.repository.MatchRepository;
+import com.retroscore.repository.UserGameRepository;
+import com.retroscore.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GuessWriteBehindServiceTests extends IntegrationTest {
+
+	@Autowired
+	MatchCatalog matchCatalog;
+
+	@Autowired
+	PlayHistoryCache playHistoryCache;
+
+	@Autowired
+	UserGameRepository userGameRepository;
+
+	@Autowired
+	UserRepository userRepository;
+
+	@Autowired
+	MatchRepository matchRepository;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Autowired
+	ApplicationEventPublisher eventPublisher;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final List<Match> matches = new ArrayList<>();
+	private GuessWriteBehindService writeBehind;
+
+	@BeforeEach
+	void importMatches() {
+		Season season = fixtures.season();
+		for (int i = 0; i < 50; i++) {
+			matches.add(fixtures.match(season));
+		}
+		matchCatalog.rebuild();
+	}
+
+	@AfterEach
+	void stopWriter() {
+		if (writeBehind != null) {
+			writeBehind.stop();
+		}
+	}
+
+	@Test
+	void fullQueueRejectsTheGuess() {
+		User user = fixtures.user();
+		// never started, so nothing drains the single slot
+		writeBehind = writeBehind(transactionManager, 1);
+
+		writeBehind.submitGuess(user.getId(), TestFixtures.guess(matches.get(0).getId(), 2, 1));
+		assertThrows(GuessQueueFullException.class,
+				() -> writeBehind.submitGuess(user.getId(), TestFixtures.guess(matches.get(1).getId(), 2, 1)));
+
+		assertEquals(1.0, meterRegistry.counter("game.guess.write_behind.rejected").count());
+		// the rejected guess never counted, so the match can be played again
+		assertFalse(playHistoryCache.get(user.getId()).hasPlayed(matches.get(1).getId()));
+		assertTrue(playHistoryCache.get(user.getId()).hasPlayed(matches.get(0).getId()));
+	}
+
+	@Test
+	void batchIsRetriedAfterTransientFailure() {
+		User user = fixtures.user();
+		FlakyTransactionManager flaky = new FlakyTransactionManager(transactionManager, 3);
+		writeBehind = writeBehind(flaky, 100);
+		writeBehind.start();
+
+		writeBehind.submitGuess(user.getId(), TestFixtures.guess(matches.get(0).getId(), 2, 1));
+
+		await(() -> userGameRepository.findByUserIdAndMatchId(user.getId(), matches.get(0).getId()).isPresent());
+		assertTrue(flaky.failed.get() >= 3);
+		assertEquals(1, (int) userRepository.findById(user.getId()).orElseThrow().getGamesPlayed());
+		assertNull(meterRegistry.find("game.guess.write_behind.dropped").counter());
+	}
+
+	@Test
+	void guessTheDatabaseKeepsRejectingIsDroppedAndCounted() {
+		// no such user, so the row breaks its foreign key on every attempt
+		long missingUserId = Long.MAX_VALUE;
+		writeBehind = writeBehind(transactionManager, 100);
+		writeBehind.start();
+
+		writeBehind.submitGuess(missingUserId, TestFixtures.guess(matches.get(0).getId(), 2, 1));
+
+		await(() -> dropped("rejected") == 1.0);
+		assertFalse(playHistoryCache.get(missingUserId).hasPlayed(matches.get(0).getId()));
+	}
+
+	@Test
+	void stopWritesEveryQueuedGuess() {
+		User user = fixtures.user();
+		writeBehind = writeBehind(transactionManager, 100);
+		writeBehind.start();
+
+		for (Match match : matches) {
+			writeBehind.submitGuess(user.getId(), TestFixtures.guess(match.getId(), 0, 0));
+		}
+		writeBehind.stop();
+		writeBehind = null;
+
+		assertEquals(matches.size(), userGameRepository.findByUserId(user.getId()).size());
+		assertEquals(matches.size(), (int) userRepository.findById(user.getId()).orElseThrow().getGamesPlayed());
+	}
+
+	private GuessWriteBehindService writeBehind(PlatformTransactionManager transactions, int queueCapacity) {
+		return new GuessWriteBehindService(matchCatalog, playHistoryCache, userGameRepository, userRepository,
+				matchRepository, transactions, eventPublisher, meterRegistry,
+				true, queueCapacity, 10, 10, 10, 3, 40);
+	}
+
+	private double dropped(String reason) {
+		Counter counter = meterRegistry.find("game.guess.write_behind.dropped").tag("reason", reason).counter();
+		return counter == null ? 0 : counter.count();
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.nanoTime() + 10_000_000_000L;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "condition not met within 10 s");
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	// cannot open a transaction for the first few attempts, as when the database is briefly unreachable
+	private static final class FlakyTransactionManager implements PlatformTransactionManager {
+
+		private final PlatformTransactionManager delegate;
+		private final int failures;
+		private final AtomicInteger failed = new AtomicInteger();
+
+		FlakyTransactionManager(PlatformTransactionManager delegate, int failures) {
+			this.delegate = delegate;
+			this.failures = failures;
+		}
+
+		@Override
+		public TransactionStatus getTransaction(TransactionDefinition definition) {
+			if (failed.get() < failures) {
+				failed.incrementAndGet();
+				throw new CannotCreateTransactionException("database unreachable");
+			}
+			return delegate.getTransaction(definition);
+		}
+
+		@Override
+		public void commit(TransactionStatus status) {
+			delegate.commit(status);
+		}
+
+		@Override
+		public void rollback(TransactionStatus status) {
+			delegate.rollback(status);
+		}
+	}
+}
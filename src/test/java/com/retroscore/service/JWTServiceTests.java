@@ -0,0 +1,164 @@
+package com.retroscore.service;
+
+import com.retroscore.entity.RevokedToken;
+import com.retroscore.entity.User;
+import com.retroscore.repository.RevokedTokenRepository;
+import com.retroscore.repository.UserRepository;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JWTServiceTests {
+
+	private static final String SECRET = "OcqlSyygCPnju+y0M7Fzv/CKt9RSzK/bpVELbOwrauJmgvE2dN8DqnmUro8fmum8";
+
+	// rows the revocation sync reads, as if another instance had logged the token out
+	private final List<RevokedToken> revokedRows = new ArrayList<>();
+	// signature checks actually made by the parser
+	private final AtomicInteger parses = new AtomicInteger();
+	private TokenRevocationService revocations;
+
+	@BeforeEach
+	void loadRevocations() {
+		revocations = new TokenRevocationService(revokedTokenRepository(), 1_000, 0.001);
+		revocations.loadRevocations();
+	}
+
+	@Test
+	void repeatedRequestsWithOneTokenVerifyItOnce() {
+		JWTService jwtService = jwtService(100, 60_000);
+		String token = jwtService.generateToken(user(1));
+
+		for (int i = 0; i < 1_000; i++) {
+			assertEquals("1", jwtService.verify(token).subject());
+		}
+		// the claim getters and the filter's check share the same cached verification
+		assertEquals(1L, (long) jwtService.getUserIdFromToken(token));
+		assertEquals("player1@example.com", jwtService.getEmailFromToken(token));
+		assertTrue(jwtService.validateToken(token));
+		assertFalse(jwtService.isTokenExpired(token));
+
+		assertEquals(1, parses.get());
+	}
+
+	@Test
+	void tamperedTokenIsRejectedEveryTimeAndNeverCached() {
+		JWTService jwtService = jwtService(100, 60_000);
+		String token = jwtService.generateToken(user(1));
+		String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+		for (int i = 0; i < 3; i++) {
+			assertThrows(JwtException.class, () -> jwtService.verify(tampered));
+			assertTrue(jwtService.verifyIfValid(tampered).isEmpty());
+		}
+
+		assertEquals(6, parses.get());
+	}
+
+	@Test
+	void cachedTokenStopsWorkingWhenItExpires() throws InterruptedException {
+		JWTService jwtService = jwtService(100, 1_000);
+		String token = jwtService.generateToken(user(1));
+		jwtService.verify(token);
+
+		Thread.sleep(1_100);
+
+		assertThrows(ExpiredJwtException.class, () -> jwtService.verify(token));
+		assertFalse(jwtService.validateToken(token));
+		// the first rejection came from the cache, the second had to parse again
+		assertEquals(2, parses.get());
+	}
+
+	@Test
+	void cachedTokenStopsWorkingWhenItIsRevoked() {
+		JWTService jwtService = jwtService(100, 60_000);
+		String token = jwtService.generateToken(user(1));
+		String tokenId = jwtService.verify(token).id();
+
+		revokedRows.add(new RevokedToken(tokenId, LocalDateTime.now().plusHours(1), LocalDateTime.now()));
+		revocations.syncRevocations();
+
+		assertThrows(JwtException.class, () -> jwtService.verify(token));
+		assertTrue(jwtService.verifyIfValid(token).isEmpty());
+		assertEquals(1, parses.get());
+	}
+
+	@Test
+	void leastRecentlyUsedTokenIsVerifiedAgainOnceEvicted() {
+		JWTService jwtService = jwtService(2, 60_000);
+		String first = jwtService.generateToken(user(1));
+		String second = jwtService.generateToken(user(2));
+		String third = jwtService.generateToken(user(3));
+
+		jwtService.verify(first);
+		jwtService.verify(second);
+		jwtService.verify(first);
+		// evicts second, used longer ago than first
+		jwtService.verify(third);
+		assertEquals(3, parses.get());
+
+		jwtService.verify(first);
+		assertEquals(3, parses.get());
+		jwtService.verify(second);
+		assertEquals(4, parses.get());
+	}
+
+	// the service as Spring builds it, with its parser wrapped to count signature checks
+	private JWTService jwtService(int maxVerifiedTokens, long expirationMs) {
+		JWTService jwtService = new JWTService(unusedUserRepository(), revocations, maxVerifiedTokens);
+		ReflectionTestUtils.setField(jwtService, "jwtSecret", SECRET);
+		ReflectionTestUtils.setField(jwtService, "jwtExpirationInMs", expirationMs);
+		jwtService.initSigningKey();
+		JwtParser parser = (JwtParser) ReflectionTestUtils.getField(jwtService, "parser");
+		ReflectionTestUtils.setField(jwtService, "parser", Proxy.newProxyInstance(JwtParser.class.getClassLoader(),
+				new Class<?>[]{JwtParser.class}, (proxy, method, args) -> {
+					if (method.getName().equals("parseSignedClaims")) {
+						parses.incrementAndGet();
+					}
+					try {
+						return method.invoke(parser, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				}));
+		return jwtService;
+	}
+
+	private static User user(long id) {
+		User user = new User("player" + id, "player" + id + "@example.com");
+		user.setId(id);
+		return user;
+	}
+
+	private RevokedTokenRepository revokedTokenRepository() {
+		return (RevokedTokenRepository) Proxy.newProxyInstance(RevokedTokenRepository.class.getClassLoader(),
+				new Class<?>[]{RevokedTokenRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+					case "findByExpiresAtAfter" -> List.of();
+					case "findByRevokedAtAfterAndExpiresAtAfter" -> revokedRows;
+					default -> throw new UnsupportedOperationException(method.getName());
+				});
+	}
+
+	// JWTService only reads users when refreshing, which these tests do not
+	private static UserRepository unusedUserRepository() {
+		return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+				new Class<?>[]{UserRepository.class}, (proxy, method, args) -> {
+					throw new UnsupportedOperationException(method.getName());
+				});
+	}
+}
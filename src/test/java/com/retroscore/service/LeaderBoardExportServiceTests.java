@@ -0,0 +1,144 @@
+package com.retroscore.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retroscore.IntegrationTest;
+import com.retroscore.entity.User;
+import com.retroscore.exception.InvalidExportFormatException;
+import com.retroscore.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeaderBoardExportServiceTests extends IntegrationTest {
+
+	@Autowired
+	LeaderBoardExportService exportService;
+
+	@Autowired
+	UserRepository userRepository;
+
+	@Autowired
+	ObjectMapper objectMapper;
+
+	@Test
+	void csvQuotesUsernamesWithCommasQuotesAndNewlines() throws Exception {
+		User comma = named("last, first");
+		User quote = named("the \"keeper\"");
+		User newline = named("two\nlines");
+
+		List<List<String>> records = csv(export(LeaderBoardExportService.Format.CSV));
+
+		assertEquals(List.of("position", "rank", "userId", "username", "totalPoints", "gamesPlayed", "gamesWon",
+				"createdAt"), records.get(0));
+		// every user is one record of eight fields, whatever is in the name
+		assertEquals(userRepository.count() + 1, records.size());
+		for (List<String> record : records) {
+			assertEquals(8, record.size());
+		}
+		for (User user : List.of(comma, quote, newline)) {
+			assertEquals(user.getUsername(), record(records, user).get(3));
+		}
+		String raw = export(LeaderBoardExportService.Format.CSV);
+		assertTrue(raw.contains(",\"the \"\"keeper\"\"-"));
+		assertTrue(raw.endsWith("\n"));
+	}
+
+	@Test
+	void ndjsonWritesOneObjectPerLine() throws Exception {
+		User newline = named("two\nlines");
+		User quote = named("the \"keeper\"");
+
+		String ndjson = export(LeaderBoardExportService.Format.NDJSON);
+
+		assertTrue(ndjson.endsWith("\n"));
+		String[] lines = ndjson.split("\n");
+		assertEquals(userRepository.count(), lines.length);
+		List<String> usernames = new ArrayList<>();
+		for (int i = 0; i < lines.length; i++) {
+			assertFalse(lines[i].isBlank());
+			JsonNode row = objectMapper.readTree(lines[i]);
+			assertEquals(i + 1, row.get("position").asLong());
+			assertTrue(row.get("rank").asLong() <= row.get("position").asLong());
+			usernames.add(row.get("username").asText());
+		}
+		assertTrue(usernames.contains(newline.getUsername()));
+		assertTrue(usernames.contains(quote.getUsername()));
+	}
+
+	@Test
+	void unknownFormatIsRejected() {
+		assertEquals(LeaderBoardExportService.Format.CSV, LeaderBoardExportService.Format.parse("Csv"));
+		assertEquals(LeaderBoardExportService.Format.NDJSON, LeaderBoardExportService.Format.parse("ndjson"));
+
+		assertThrows(InvalidExportFormatException.class, () -> LeaderBoardExportService.Format.parse("xml"));
+		assertThrows(InvalidExportFormatException.class, () -> LeaderBoardExportService.Format.parse(""));
+		assertThrows(InvalidExportFormatException.class, () -> LeaderBoardExportService.Format.parse(null));
+	}
+
+	// usernames are unique, so the awkward part is followed by a random suffix
+	private User named(String username) {
+		User user = fixtures.user();
+		user.setUsername(username + "-" + UUID.randomUUID());
+		return userRepository.save(user);
+	}
+
+	private String export(LeaderBoardExportService.Format format) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		exportService.export(format, out);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	private static List<String> record(List<List<String>> records, User user) {
+		return records.stream()
+				.filter(record -> record.get(2).equals(String.valueOf(user.getId())))
+				.findFirst()
+				.orElseThrow();
+	}
+
+	// RFC 4180 reader: quoted fields may hold commas, doubled quotes and line breaks
+	private static List<List<String>> csv(String text) {
+		List<List<String>> records = new ArrayList<>();
+		List<String> record = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (quoted) {
+				if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				record.add(field.toString());
+				field.setLength(0);
+			} else if (c == '\n') {
+				record.add(field.toString());
+				field.setLength(0);
+				records.add(record);
+				record = new ArrayList<>();
+			} else {
+				field.append(c);
+			}
+		}
+		assertFalse(quoted, "unterminated quoted field");
+		assertTrue(record.isEmpty() && field.isEmpty(), "last record not terminated by a newline");
+		return records;
+	}
+}
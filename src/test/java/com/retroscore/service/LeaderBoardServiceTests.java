@@ -0,0 +1,143 @@
+package com.retroscore.service;
+
+import com.retroscore.IntegrationTest;
+import com.retroscore.dto.LeaderBoardCursorPage;
+import com.retroscore.dto.LeaderBoardEntry;
+import com.retroscore.entity.User;
+import com.retroscore.exception.InvalidCursorException;
+import com.retroscore.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeaderBoardServiceTests extends IntegrationTest {
+
+	// every test gets its own points above everything saved so far, so its users head the board
+	private static final AtomicInteger TOP_POINTS = new AtomicInteger(1_000_000);
+
+	@Autowired
+	LeaderBoardService leaderBoardService;
+
+	@Autowired
+	UserRepository userRepository;
+
+	@Test
+	void cursorPagesWalkATieGroupWithoutSkipsOrRepeats() {
+		List<User> expected = topTieGroup();
+
+		List<LeaderBoardEntry> entries = allPages(2);
+
+		assertEquals(userRepository.count(), entries.size());
+		assertEquals(entries.size(), new HashSet<>(entries.stream().map(LeaderBoardEntry::getUserId).toList()).size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getId(), entries.get(i).getUserId());
+			assertEquals(i + 1, (long) entries.get(i).getRank());
+		}
+		for (int i = 1; i < entries.size(); i++) {
+			assertTrue(entries.get(i - 1).getTotalPoints() >= entries.get(i).getTotalPoints());
+		}
+	}
+
+	@Test
+	void everyPageSizeCutsTheTieGroupAtTheSameOrder() {
+		List<Long> expected = topTieGroup().stream().map(User::getId).toList();
+
+		for (int size : new int[]{1, 3, 4, 5, 6, 7, 8}) {
+			List<Long> ids = allPages(size).stream().map(LeaderBoardEntry::getUserId).toList();
+			assertEquals(expected, ids.subList(0, expected.size()));
+		}
+	}
+
+	@Test
+	void cursorOnAnUndatedUserContinuesWithTheRestOfItsPoints() {
+		List<User> expected = topTieGroup();
+
+		// the first page ends on the first user without a join date
+		LeaderBoardCursorPage first = leaderBoardService.getLeaderBoardPage(null, 7, false);
+		assertEquals(expected.get(6).getId(), first.getEntries().get(6).getUserId());
+
+		LeaderBoardCursorPage second = leaderBoardService.getLeaderBoardPage(first.getNextCursor(), 2, false);
+		assertEquals(expected.get(7).getId(), second.getEntries().get(0).getUserId());
+		assertEquals(expected.get(8).getId(), second.getEntries().get(1).getUserId());
+		assertEquals(8L, (long) second.getEntries().get(0).getRank());
+	}
+
+	@Test
+	void cursorRoundTripsTheLastRowOfItsPage() {
+		List<User> expected = topTieGroup();
+
+		LeaderBoardCursorPage first = leaderBoardService.getLeaderBoardPage(null, 3, false);
+		LeaderBoardCursorPage second = leaderBoardService.getLeaderBoardPage(first.getNextCursor(), 3, false);
+		// same cursor, same page
+		LeaderBoardCursorPage again = leaderBoardService.getLeaderBoardPage(first.getNextCursor(), 3, false);
+
+		assertEquals(expected.get(3).getId(), second.getEntries().get(0).getUserId());
+		assertEquals(4L, (long) second.getEntries().get(0).getRank());
+		assertEquals(second.getEntries(), again.getEntries());
+		assertEquals(second.getNextCursor(), again.getNextCursor());
+	}
+
+	@Test
+	void garbageAndHandEditedCursorsAreRejected() {
+		topTieGroup();
+		String cursor = leaderBoardService.getLeaderBoardPage(null, 3, false).getNextCursor();
+		String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+		String[] parts = raw.split("\\|", -1);
+
+		List<String> rejected = List.of(
+				"not a cursor!",
+				cursor.substring(0, cursor.length() / 2),
+				encode("3|x|2024-03-01T12:00|7"),
+				encode(parts[0] + "|" + parts[1] + "|" + parts[2]),
+				encode(raw + "|1"),
+				encode("-5|" + parts[1] + "|" + parts[2] + "|" + parts[3]),
+				encode(parts[0] + "|-1|" + parts[2] + "|" + parts[3]),
+				encode(parts[0] + "|" + parts[1] + "|yesterday|" + parts[3]));
+		for (String bad : rejected) {
+			assertThrows(InvalidCursorException.class, () -> leaderBoardService.getLeaderBoardPage(bad, 3, false));
+		}
+	}
+
+	// users on points above everyone else: five with equal join dates, one who joined later,
+	// two without a join date, then one on a point less; in the order the leaderboard ranks them
+	private List<User> topTieGroup() {
+		int points = TOP_POINTS.addAndGet(1_000);
+		LocalDateTime joined = LocalDateTime.of(2024, 3, 1, 12, 0);
+		List<User> users = new ArrayList<>();
+		// same points and join date, ordered by id alone
+		for (int i = 0; i < 5; i++) {
+			users.add(fixtures.user(joined, points));
+		}
+		users.add(fixtures.user(joined.plusSeconds(1), points));
+		users.add(fixtures.user(null, points));
+		users.add(fixtures.user(null, points));
+		users.add(fixtures.user(joined.minusYears(1), points - 1));
+		return users;
+	}
+
+	private static String encode(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private List<LeaderBoardEntry> allPages(int size) {
+		List<LeaderBoardEntry> entries = new ArrayList<>();
+		String cursor = null;
+		do {
+			LeaderBoardCursorPage page = leaderBoardService.getLeaderBoardPage(cursor, size, false);
+			entries.addAll(page.getEntries());
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+		return entries;
+	}
+}
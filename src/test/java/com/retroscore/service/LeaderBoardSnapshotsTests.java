@@ -0,0 +1,54 @@
+package com.retroscore.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class LeaderBoardSnapshotsTests {
+
+	private static List<LeaderBoardIndex.RankedUser> users(int count, int pointsOfFirst) {
+		List<LeaderBoardIndex.RankedUser> users = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			users.add(new LeaderBoardIndex.RankedUser(i + 1, "player" + i, i == 0 ? pointsOfFirst : 100 - i, 10, 2,
+					LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(i), null));
+		}
+		return users;
+	}
+
+	@Test
+	void sameContentGivesTheSameTagWhereverAndWheneverItWasBuilt() {
+		// two instances, or one before and after a restart
+		LeaderBoardSnapshots.Snapshot first = new LeaderBoardSnapshots.Snapshot(users(50, 500), 50, Instant.EPOCH);
+		LeaderBoardSnapshots.Snapshot second = new LeaderBoardSnapshots.Snapshot(users(50, 500), 50, Instant.now());
+
+		assertEquals(first.pageTag(0, 20), second.pageTag(0, 20));
+		assertEquals(first.pageTag(2, 20), second.pageTag(2, 20));
+	}
+
+	@Test
+	void tagChangesWithThePageContent() {
+		LeaderBoardSnapshots.Snapshot before = new LeaderBoardSnapshots.Snapshot(users(50, 500), 50, Instant.EPOCH);
+		LeaderBoardSnapshots.Snapshot after = new LeaderBoardSnapshots.Snapshot(users(50, 503), 50, Instant.EPOCH);
+		LeaderBoardSnapshots.Snapshot grown = new LeaderBoardSnapshots.Snapshot(users(50, 500), 51, Instant.EPOCH);
+
+		assertNotEquals(before.pageTag(0, 20), after.pageTag(0, 20));
+		// the page itself did not change, only the total it reports
+		assertNotEquals(before.pageTag(1, 20), grown.pageTag(1, 20));
+		// untouched page keeps its tag
+		assertEquals(before.pageTag(1, 20), after.pageTag(1, 20));
+	}
+
+	@Test
+	void pagesAndPageSizesGetDistinctTags() {
+		LeaderBoardSnapshots.Snapshot snapshot = new LeaderBoardSnapshots.Snapshot(users(50, 500), 50, Instant.EPOCH);
+
+		assertNotEquals(snapshot.pageTag(0, 20), snapshot.pageTag(1, 20));
+		assertNotEquals(snapshot.pageTag(0, 20), snapshot.pageTag(0, 10));
+	}
+}
@@ -0,0 +1,178 @@
+package com.retroscore.service;
+
+import com.retroscore.enums.GameResult;
+import com.retroscore.event.GuessScoredEvent;
+import com.retroscore.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LeaderBoardStreamServiceTests {
+
+	private static final long SCORER = 1;
+	private static final long PASSED = 2;
+	private static final long ABOVE = 3;
+	private static final long BELOW = 4;
+
+	private final ManualExecutor sender = new ManualExecutor();
+	// number of rank lookups made for each points total
+	private final Map<Integer, Integer> rankLookups = new HashMap<>();
+	private LeaderBoardIndex index;
+	private LeaderBoardStreamService streams;
+
+	@BeforeEach
+	void buildBoard() {
+		index = new LeaderBoardIndex(userRepository(List.of(
+				row(SCORER, 100), row(PASSED, 120), row(ABOVE, 1_000), row(BELOW, 50)))) {
+			@Override
+			public long rankForPoints(int totalPoints) {
+				rankLookups.merge(totalPoints, 1, Integer::sum);
+				return super.rankForPoints(totalPoints);
+			}
+		};
+		index.rebuild();
+		streams = new LeaderBoardStreamService(index, 10, 60_000, sender);
+
+		streams.subscribe(PASSED, false);
+		streams.subscribe(ABOVE, false);
+		streams.subscribe(BELOW, false);
+		sender.runAll();
+		rankLookups.clear();
+	}
+
+	@Test
+	void committingThreadOnlyQueuesTheEvent() {
+		for (int i = 0; i < 50; i++) {
+			scored(SCORER, GameResult.EXACT_SCORE);
+		}
+
+		assertEquals(0, rankLookups.size());
+		// one recompute task for the whole burst
+		assertEquals(1, sender.queued());
+	}
+
+	@Test
+	void burstOfGuessesIsRecomputedOnce() {
+		for (int i = 0; i < 50; i++) {
+			scored(SCORER, GameResult.EXACT_SCORE);
+		}
+		sender.runAll();
+
+		// the one subscriber the scorer passed, looked up once at its unchanged points
+		assertEquals(Map.of(120, 1), rankLookups);
+	}
+
+	@Test
+	void onlySubscribersInThePassedBandAreRecomputed() {
+		scored(SCORER, GameResult.EXACT_SCORE);
+		sender.runAll();
+		// 100 + 3 does not reach 120 yet
+		assertEquals(Map.of(), rankLookups);
+
+		for (int i = 0; i < 6; i++) {
+			scored(SCORER, GameResult.EXACT_SCORE);
+		}
+		sender.runAll();
+		assertEquals(Map.of(120, 1), rankLookups);
+	}
+
+	@Test
+	void subscribedScorerIsRekeyedByItsNewPoints() {
+		streams.subscribe(SCORER, false);
+		sender.runAll();
+		rankLookups.clear();
+
+		for (int i = 0; i < 10; i++) {
+			scored(SCORER, GameResult.EXACT_SCORE);
+		}
+		sender.runAll();
+		assertEquals(Map.of(120, 1, 100 + 10 * GameResult.EXACT_SCORE.getPoints(), 1), rankLookups);
+		rankLookups.clear();
+
+		// the scorer now sits above PASSED, so BELOW scoring up to 130 passes PASSED but not the scorer
+		for (int i = 0; i < 25; i++) {
+			scored(BELOW, GameResult.EXACT_SCORE);
+		}
+		sender.runAll();
+		assertEquals(Map.of(120, 1, 50 + 25 * GameResult.EXACT_SCORE.getPoints(), 1), rankLookups);
+	}
+
+	private void scored(long userId, GameResult result) {
+		GuessScoredEvent event = new GuessScoredEvent(userId, 1L, 1L, 1L, 2L, result, LocalDateTime.now());
+		index.onGuessScored(event);
+		streams.onGuessScored(event);
+	}
+
+	private static Object[] row(long userId, int totalPoints) {
+		return new Object[]{userId, "player" + userId, totalPoints, 10, 1, LocalDateTime.of(2024, 1, 1, 0, 0), null};
+	}
+
+	// answers only the full read LeaderBoardIndex#rebuild makes
+	private static UserRepository userRepository(List<Object[]> rows) {
+		return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+				new Class<?>[]{UserRepository.class}, (proxy, method, args) -> {
+					if (method.getName().equals("findLeaderBoardRows")) {
+						return rows;
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+	}
+
+	// runs tasks only when told to, so a test can see what was queued
+	private static final class ManualExecutor extends AbstractExecutorService {
+
+		private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+		int queued() {
+			return tasks.size();
+		}
+
+		void runAll() {
+			Runnable task;
+			while ((task = tasks.poll()) != null) {
+				task.run();
+			}
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			tasks.add(command);
+		}
+
+		@Override
+		public void shutdown() {
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			return new ArrayList<>(tasks);
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return false;
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return false;
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.retroscore.service;
+
+import com.retroscore.repository.FootballClubRepository;
+import com.retroscore.repository.MatchRepository;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchCatalogTests {
+
+	private static final long SEASON = 10;
+	private static final long OTHER_SEASON = 11;
+	private static final long TEAM = 20;
+
+	private final AtomicInteger reads = new AtomicInteger();
+	private volatile Supplier<List<Object[]>> catalogRows = () -> List.of(
+			row(1, SEASON, TEAM, 30), row(2, SEASON, 40, TEAM), row(3, SEASON, 30, 40),
+			row(4, OTHER_SEASON, TEAM, 40), row(5, OTHER_SEASON, 30, 40));
+
+	@Test
+	void teamAndSeasonFilterIsPrecomputed() {
+		MatchCatalog catalog = catalog();
+
+		long[] teamSeason = catalog.findMatchIds(TEAM, SEASON);
+		assertArrayEquals(new long[]{1, 2}, teamSeason);
+		// the same array on every call, nothing is filtered per request
+		assertSame(teamSeason, catalog.findMatchIds(TEAM, SEASON));
+		assertArrayEquals(new long[]{4}, catalog.findMatchIds(TEAM, OTHER_SEASON));
+		assertArrayEquals(new long[]{1, 2, 4}, catalog.findMatchIds(TEAM, null));
+		assertArrayEquals(new long[0], catalog.findMatchIds(TEAM, 99L));
+		assertArrayEquals(new long[0], catalog.findMatchIds(99L, SEASON));
+	}
+
+	@Test
+	void laterRebuildWaitsForTheRunningOne() throws Exception {
+		MatchCatalog catalog = catalog();
+		CountDownLatch reading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		// the first rebuild reads the matches from before an import and is slow to finish
+		catalogRows = () -> {
+			reading.countDown();
+			await(release);
+			return List.<Object[]>of(row(1, SEASON, TEAM, 30));
+		};
+		CompletableFuture<Void> stale = CompletableFuture.runAsync(catalog::rebuild);
+		assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+		catalogRows = () -> List.<Object[]>of(row(1, SEASON, TEAM, 30), row(2, SEASON, 40, TEAM), row(6, SEASON, 30, 40));
+		CompletableFuture<Void> fresh = CompletableFuture.runAsync(catalog::rebuild);
+		Thread.sleep(100);
+		// the import's rebuild has not started reading while the first one runs
+		assertEquals(2, reads.get());
+
+		release.countDown();
+		stale.get(5, TimeUnit.SECONDS);
+		fresh.get(5, TimeUnit.SECONDS);
+
+		assertEquals(3, reads.get());
+		assertEquals(3, catalog.size());
+		assertArrayEquals(new long[]{1, 2}, catalog.findMatchIds(TEAM, SEASON));
+	}
+
+	private MatchCatalog catalog() {
+		MatchRepository matches = (MatchRepository) Proxy.newProxyInstance(MatchRepository.class.getClassLoader(),
+				new Class<?>[]{MatchRepository.class}, (proxy, method, args) -> {
+					if (method.getName().equals("findCatalogRows")) {
+						reads.incrementAndGet();
+						return catalogRows.get();
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+		FootballClubRepository clubs = (FootballClubRepository) Proxy.newProxyInstance(
+				FootballClubRepository.class.getClassLoader(), new Class<?>[]{FootballClubRepository.class},
+				(proxy, method, args) -> {
+					if (method.getName().equals("findAll")) {
+						return List.of();
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+		MatchCatalog catalog = new MatchCatalog(matches, clubs);
+		catalog.afterSingletonsInstantiated();
+		return catalog;
+	}
+
+	// row layout of MatchRepository#findCatalogRows, every match 1-0
+	private static Object[] row(long matchId, long seasonId, long homeTeamId, long awayTeamId) {
+		return new Object[]{matchId, seasonId, homeTeamId, awayTeamId, 1, 0};
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			assertTrue(latch.await(5, TimeUnit.SECONDS));
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
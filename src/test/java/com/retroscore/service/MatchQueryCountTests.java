@@ -0,0 +1,98 @@
+package com.retroscore.service;
+
+import com.retroscore.IntegrationTest;
+import com.retroscore.TestFixtures;
+import com.retroscore.dto.MatchDto;
+import com.retroscore.dto.UserGameResponse;
+import com.retroscore.entity.Match;
+import com.retroscore.entity.Season;
+import com.retroscore.entity.User;
+import com.retroscore.repository.MatchRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Match reads build their DTOs in one joined statement, reading the season and both clubs
+ * from the result never goes back to the database.
+ */
+class MatchQueryCountTests extends IntegrationTest {
+
+	@Autowired
+	GameService gameService;
+
+	@Autowired
+	MatchCatalog matchCatalog;
+
+	@Autowired
+	MatchRepository matchRepository;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	private Season season;
+	private Match match;
+	private Statistics statistics;
+
+	@BeforeEach
+	void saveMatches() {
+		season = fixtures.season();
+		match = fixtures.match(season);
+		fixtures.match(season);
+		fixtures.match(season);
+		matchCatalog.rebuild();
+
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void matchDtoByIdIsOneStatement() {
+		MatchDto dto = matchRepository.findMatchDtoById(match.getId()).orElseThrow();
+
+		assertEquals(match.getMatchTitle(), dto.getMatchTitle());
+		assertEquals(season.getSeasonName(), dto.getSeasonName());
+		assertEquals(match.getHomeTeam().getName(), dto.getHomeTeam().getName());
+		assertEquals(match.getAwayTeam().getStadiumName(), dto.getAwayTeam().getStadiumName());
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void randomMatchIsOneStatement() {
+		assertNotNull(gameService.getRandomMatch(null, null, season.getId(), "discovery", false));
+
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void randomMatchBatchIsOneStatement() {
+		List<MatchDto> matches = gameService.getRandomMatches(null, null, season.getId(), "discovery", 3);
+
+		assertEquals(3, matches.size());
+		for (MatchDto dto : matches) {
+			assertNotNull(dto.getHomeTeam().getName());
+			assertNotNull(dto.getAwayTeam().getName());
+		}
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void gameResultIsOneStatement() {
+		User user = fixtures.user();
+		UserGameResponse submitted = gameService.submitGuess(user.getId(), TestFixtures.guess(match.getId(), 1, 1));
+		statistics.clear();
+
+		UserGameResponse result = gameService.getGameResult(user.getId(), submitted.getUserGameId());
+
+		assertEquals(match.getMatchTitle(), result.getMatchTitle());
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+}
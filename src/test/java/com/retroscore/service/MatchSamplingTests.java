@@ -0,0 +1,178 @@
+package com.retroscore.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retroscore.IntegrationTest;
+import com.retroscore.TestFixtures;
+import com.retroscore.entity.FootballClub;
+import com.retroscore.entity.Match;
+import com.retroscore.entity.Season;
+import com.retroscore.entity.User;
+import com.retroscore.exception.NoMatchesFoundException;
+import com.retroscore.repository.MatchRepository;
+import com.retroscore.repository.UserGameRepository;
+import com.retroscore.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Random matches drawn by the database (game.random-match.source=database): a count and a
+ * single-row offset fetch over the filtered matches, anti-joined on the user's played games.
+ */
+class MatchSamplingTests extends IntegrationTest {
+
+	@Autowired
+	GameService gameService;
+
+	@Autowired
+	MatchRepository matchRepository;
+
+	@Autowired
+	UserGameRepository userGameRepository;
+
+	@Autowired
+	UserRepository userRepository;
+
+	@Autowired
+	MatchCatalog matchCatalog;
+
+	@Autowired
+	PlayHistoryCache playHistoryCache;
+
+	@Autowired
+	MatchResponseCache matchResponseCache;
+
+	@Autowired
+	ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	ObjectMapper objectMapper;
+
+	private GameService databaseSampling;
+	private Season season;
+	private final List<Long> matchIds = new ArrayList<>();
+
+	@BeforeEach
+	void saveMatches() {
+		databaseSampling = new GameService(matchRepository, userGameRepository, userRepository, matchCatalog,
+				playHistoryCache, matchResponseCache, eventPublisher, "database");
+		season = fixtures.season();
+		for (int i = 0; i < 6; i++) {
+			matchIds.add(fixtures.match(season).getId());
+		}
+		matchCatalog.rebuild();
+	}
+
+	@Test
+	void everyUnplayedMatchIsReachedByExactlyOneOffset() {
+		User user = fixtures.user();
+		played(user, matchIds.get(1), matchIds.get(4));
+
+		assertEquals(6, matchRepository.countSampleCandidates(null, season.getId(), null));
+		assertEquals(4, matchRepository.countSampleCandidates(null, season.getId(), user.getId()));
+
+		List<Long> sampled = new ArrayList<>();
+		for (long offset = 0; offset < 4; offset++) {
+			sampled.add(matchRepository.findSampleCandidateIdAtOffset(null, season.getId(), user.getId(), offset).orElseThrow());
+		}
+		assertEquals(List.of(matchIds.get(0), matchIds.get(2), matchIds.get(3), matchIds.get(5)), sampled);
+		assertFalse(matchRepository.findSampleCandidateIdAtOffset(null, season.getId(), user.getId(), 4).isPresent());
+	}
+
+	@Test
+	void teamAndSeasonFiltersCombine() {
+		FootballClub club = fixtures.club();
+		Season otherSeason = fixtures.season();
+		Match home = fixtures.match(season, club, fixtures.club());
+		Match away = fixtures.match(otherSeason, fixtures.club(), club);
+
+		assertEquals(2, matchRepository.countSampleCandidates(club.getId(), null, null));
+		assertEquals(1, matchRepository.countSampleCandidates(club.getId(), season.getId(), null));
+		assertEquals(home.getId(), matchRepository.findSampleCandidateIdAtOffset(club.getId(), season.getId(), null, 0).orElseThrow());
+		assertEquals(away.getId(), matchRepository.findSampleCandidateIdAtOffset(club.getId(), otherSeason.getId(), null, 0).orElseThrow());
+	}
+
+	@Test
+	void unplayedModeNeverPicksAPlayedMatch() throws Exception {
+		User user = fixtures.user();
+		played(user, matchIds.subList(0, 5).toArray(Long[]::new));
+
+		for (int i = 0; i < 20; i++) {
+			assertEquals((long) matchIds.get(5), pick(user, "unplayed"));
+		}
+
+		played(user, matchIds.get(5));
+		assertThrows(NoMatchesFoundException.class,
+				() -> databaseSampling.getRandomMatch(user.getId(), null, season.getId(), "unplayed", false));
+	}
+
+	@Test
+	void discoveryFallsBackToEveryMatchBelowFiveUnplayed() throws Exception {
+		User user = fixtures.user();
+		played(user, matchIds.get(0));
+
+		// five left, only those are drawn
+		for (int i = 0; i < 50; i++) {
+			assertTrue(pick(user, "discovery") != matchIds.get(0).longValue());
+		}
+
+		played(user, matchIds.get(1));
+		// four left, so every match is back in the draw
+		Set<Long> picked = new HashSet<>();
+		for (int i = 0; i < 300 && picked.size() < matchIds.size(); i++) {
+			picked.add(pick(user, "discovery"));
+		}
+		assertEquals(new HashSet<>(matchIds), picked);
+	}
+
+	@Test
+	void drawIsTwoStatementsWhateverTheCandidateCount() {
+		Season single = fixtures.season();
+		fixtures.match(single);
+		// renders and caches the only match, later draws only sample
+		databaseSampling.getRandomMatch(null, null, single.getId(), "discovery", false);
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		for (Long seasonId : List.of(single.getId(), season.getId())) {
+			// warm the response cache for whichever match is drawn
+			for (Long matchId : matchIds) {
+				matchResponseCache.get(matchId, () -> matchRepository.findMatchDtoById(matchId).orElseThrow());
+			}
+			statistics.clear();
+
+			databaseSampling.getRandomMatch(null, null, seasonId, "discovery", false);
+
+			// a count and a one-row fetch, no candidate list and no entities
+			assertEquals(2, statistics.getPrepareStatementCount());
+			assertEquals(0, statistics.getEntityLoadCount());
+		}
+	}
+
+	private void played(User user, Long... matchIdsPlayed) {
+		for (Long matchId : matchIdsPlayed) {
+			gameService.submitGuess(user.getId(), TestFixtures.guess(matchId, 2, 1));
+		}
+	}
+
+	private long pick(User user, String mode) throws Exception {
+		byte[] body = databaseSampling.getRandomMatch(user.getId(), null, season.getId(), mode, false).content();
+		return objectMapper.readTree(body).get("matchId").asLong();
+	}
+}
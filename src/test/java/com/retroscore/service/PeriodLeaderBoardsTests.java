@@ -0,0 +1,185 @@
+package com.retroscore.service;
+
+import com.retroscore.enums.GameResult;
+import com.retroscore.enums.LeaderBoardPeriod;
+import com.retroscore.event.GuessScoredEvent;
+import com.retroscore.repository.UserGameRepository;
+import com.retroscore.repository.UserRepository;
+import com.retroscore.util.ScoreBoard;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PeriodLeaderBoardsTests {
+
+	private static final long USER = 1;
+	private static final ZoneId ZONE = ZoneId.of("Europe/Berlin");
+	// Sunday, the last second of the week and of the month
+	private static final LocalDateTime LAST_SECOND = LocalDateTime.of(2024, 3, 31, 23, 59, 59);
+	// Monday, a new day, week and month
+	private static final LocalDateTime FIRST_SECOND = LocalDateTime.of(2024, 4, 1, 0, 0, 0);
+
+	private final MutableClock clock = new MutableClock(LAST_SECOND);
+	// rows returned by the full read, and by the re-read of users scored during it
+	private Supplier<List<Object[]>> dailyTotals = List::of;
+	private List<Object[]> rereadTotals = List.of();
+
+	@Test
+	void lastSecondOfSundayCountsForTheClosingWeek() {
+		PeriodLeaderBoards boards = load();
+
+		scored(boards, LAST_SECOND);
+
+		for (LeaderBoardPeriod period : LeaderBoardPeriod.values()) {
+			assertEquals(GameResult.EXACT_SCORE.getPoints(), points(boards.current(period)));
+		}
+	}
+
+	@Test
+	void mondayMidnightStartsEveryPeriodOverEmpty() {
+		PeriodLeaderBoards boards = load();
+		scored(boards, LAST_SECOND);
+
+		clock.set(FIRST_SECOND);
+
+		for (LeaderBoardPeriod period : LeaderBoardPeriod.values()) {
+			assertEquals(0, boards.current(period).size());
+		}
+		scored(boards, FIRST_SECOND);
+		for (LeaderBoardPeriod period : LeaderBoardPeriod.values()) {
+			assertEquals(GameResult.EXACT_SCORE.getPoints(), points(boards.current(period)));
+		}
+	}
+
+	@Test
+	void sundayGuessArrivingAfterTheRollStaysOffTheNewWeek() {
+		PeriodLeaderBoards boards = load();
+		clock.set(FIRST_SECOND);
+		scored(boards, FIRST_SECOND);
+
+		// played at 23:59:59, committed and published a moment after midnight
+		scored(boards, LAST_SECOND);
+
+		for (LeaderBoardPeriod period : LeaderBoardPeriod.values()) {
+			assertEquals(GameResult.EXACT_SCORE.getPoints(), points(boards.current(period)));
+		}
+	}
+
+	@Test
+	void guessScoredWhileTheReloadReadsIsCountedOnce() {
+		List<PeriodLeaderBoards> holder = new ArrayList<>();
+		PeriodLeaderBoards boards = load();
+		holder.add(boards);
+		// the full read sees the first guess only, the second commits while it runs
+		dailyTotals = () -> {
+			scored(holder.get(0), LAST_SECOND);
+			return List.<Object[]>of(daily(LAST_SECOND.toLocalDate(), 1));
+		};
+		rereadTotals = List.<Object[]>of(daily(LAST_SECOND.toLocalDate(), 2));
+
+		boards.scheduledReload();
+
+		for (LeaderBoardPeriod period : LeaderBoardPeriod.values()) {
+			assertEquals(2 * GameResult.EXACT_SCORE.getPoints(), points(boards.current(period)));
+		}
+	}
+
+	@Test
+	void reloadThatStraddlesMidnightKeepsTheNewPeriod() {
+		List<PeriodLeaderBoards> holder = new ArrayList<>();
+		PeriodLeaderBoards boards = load();
+		holder.add(boards);
+		dailyTotals = () -> {
+			// the calendar rolls and the first guess of the new period lands while last week's totals are read
+			clock.set(FIRST_SECOND);
+			scored(holder.get(0), FIRST_SECOND);
+			return List.<Object[]>of(daily(LAST_SECOND.toLocalDate(), 1));
+		};
+		rereadTotals = List.<Object[]>of(daily(LAST_SECOND.toLocalDate(), 1), daily(FIRST_SECOND.toLocalDate(), 1));
+
+		boards.scheduledReload();
+
+		// the reload's boards belong to the closed periods and are not swapped in
+		for (LeaderBoardPeriod period : LeaderBoardPeriod.values()) {
+			assertEquals(GameResult.EXACT_SCORE.getPoints(), points(boards.current(period)));
+		}
+	}
+
+	private PeriodLeaderBoards load() {
+		LeaderBoardIndex index = new LeaderBoardIndex(repository(UserRepository.class, (method, args) -> {
+			if (method.equals("findLeaderBoardRows")) {
+				return List.<Object[]>of(new Object[]{USER, "player", 0, 0, 0, LocalDateTime.of(2024, 1, 1, 0, 0), null});
+			}
+			throw new UnsupportedOperationException(method);
+		}));
+		index.rebuild();
+		UserGameRepository userGames = repository(UserGameRepository.class, (method, args) -> switch (method) {
+			case "findDailyTotalsSince" -> dailyTotals.get();
+			case "findDailyTotalsSinceByUserIdIn" -> rereadTotals;
+			default -> throw new UnsupportedOperationException(method);
+		});
+		PeriodLeaderBoards boards = new PeriodLeaderBoards(userGames, index, clock);
+		boards.afterSingletonsInstantiated();
+		return boards;
+	}
+
+	private static void scored(PeriodLeaderBoards boards, LocalDateTime playedAt) {
+		boards.onGuessScored(new GuessScoredEvent(USER, 100L, 10L, 20L, 30L, GameResult.EXACT_SCORE, playedAt));
+	}
+
+	// row layout of UserGameRepository#findDailyTotalsSince, all games exact scores
+	private static Object[] daily(LocalDate playedOn, int games) {
+		return new Object[]{USER, playedOn, games, games, 0, LocalDateTime.of(2024, 1, 1, 0, 0)};
+	}
+
+	private static int points(ScoreBoard board) {
+		return board.standing(USER).map(standing -> standing.score().points()).orElse(0);
+	}
+
+	private static <T> T repository(Class<T> type, Query query) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+				(proxy, method, args) -> query.answer(method.getName(), args)));
+	}
+
+	private interface Query {
+		Object answer(String method, Object[] args);
+	}
+
+	private static final class MutableClock extends Clock {
+
+		private volatile Instant now;
+
+		MutableClock(LocalDateTime now) {
+			set(now);
+		}
+
+		void set(LocalDateTime now) {
+			this.now = now.atZone(ZONE).toInstant();
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZONE;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package com.retroscore.service;
+
+import com.retroscore.repository.UserGameRepository;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PlayHistoryCacheTests {
+
+	// user ids in the order their histories were read from the database
+	private final List<Long> loads = new ArrayList<>();
+	private final PlayHistoryCache cache = new PlayHistoryCache(userGameRepository(), 2);
+
+	@Test
+	void leastRecentlyUsedUserIsEvicted() {
+		cache.get(1L);
+		cache.get(2L);
+		cache.get(1L);
+		cache.get(3L);
+
+		cache.get(1L);
+		cache.get(2L);
+
+		assertEquals(List.of(1L, 2L, 3L, 2L), loads);
+	}
+
+	@Test
+	void evictionPassesOverAPinnedEldestUser() {
+		cache.pin(1L);
+		cache.get(2L);
+		cache.get(3L);
+		cache.get(4L);
+
+		// 1 stayed although it was used least recently, 2 and 3 went in its place
+		cache.get(1L);
+		cache.get(4L);
+		assertEquals(List.of(1L, 2L, 3L, 4L), loads);
+		cache.get(2L);
+		assertEquals(List.of(1L, 2L, 3L, 4L, 2L), loads);
+	}
+
+	@Test
+	void cacheShrinksBackOnceUsersAreUnpinned() {
+		cache.pin(1L);
+		cache.pin(2L);
+		cache.pin(3L);
+		// over the limit while all three have guesses queued
+		cache.get(1L);
+		cache.get(2L);
+		cache.get(3L);
+		assertEquals(List.of(1L, 2L, 3L), loads);
+
+		cache.unpin(1L);
+		cache.unpin(2L);
+		cache.get(4L);
+
+		// the two unpinned users made room, the still pinned one stays
+		cache.get(3L);
+		cache.get(4L);
+		assertEquals(List.of(1L, 2L, 3L, 4L), loads);
+		cache.get(1L);
+		cache.get(2L);
+		assertEquals(List.of(1L, 2L, 3L, 4L, 1L, 2L), loads);
+	}
+
+	@Test
+	void userPinnedTwiceStaysUntilUnpinnedTwice() {
+		cache.pin(1L);
+		cache.pin(1L);
+		cache.unpin(1L);
+		cache.get(2L);
+		cache.get(3L);
+		cache.get(1L);
+		assertEquals(List.of(1L, 2L, 3L), loads);
+
+		cache.unpin(1L);
+		cache.get(2L);
+		cache.get(4L);
+		cache.get(1L);
+		assertEquals(List.of(1L, 2L, 3L, 2L, 4L, 1L), loads);
+	}
+
+	// answers only the history read, every user has played nothing yet
+	private UserGameRepository userGameRepository() {
+		return (UserGameRepository) Proxy.newProxyInstance(UserGameRepository.class.getClassLoader(),
+				new Class<?>[]{UserGameRepository.class}, (proxy, method, args) -> {
+					if (method.getName().equals("findPlayedMatchRows")) {
+						loads.add((Long) args[0]);
+						return List.of();
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+	}
+}
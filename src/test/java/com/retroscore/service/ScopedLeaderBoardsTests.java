@@ -0,0 +1,117 @@
+package com.retroscore.service;
+
+import com.retroscore.enums.GameResult;
+import com.retroscore.event.GuessScoredEvent;
+import com.retroscore.repository.UserGameRepository;
+import com.retroscore.repository.UserRepository;
+import com.retroscore.util.ScoreBoard;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ScopedLeaderBoardsTests {
+
+	private static final long SEASON = 10;
+	private static final long OTHER_SEASON = 11;
+	private static final long HOME = 20;
+	private static final long AWAY = 30;
+	private static final long OTHER_CLUB = 40;
+	private static final LocalDateTime JOINED = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+	private final List<Object[]> users = new ArrayList<>();
+	private final List<Object[]> scopedTotals = new ArrayList<>();
+
+	@Test
+	void guessCountsForItsSeasonAndBothClubs() {
+		ScopedLeaderBoards boards = load();
+
+		scored(boards, 1, GameResult.EXACT_SCORE);
+
+		for (ScoreBoard board : List.of(boards.season(SEASON).orElseThrow(), boards.club(HOME).orElseThrow(),
+				boards.club(AWAY).orElseThrow())) {
+			ScoreBoard.Standing standing = board.standing(1).orElseThrow();
+			assertEquals(GameResult.EXACT_SCORE.getPoints(), standing.score().points());
+			assertEquals(1, standing.score().games());
+			assertEquals(1L, standing.rank());
+		}
+		assertFalse(boards.season(OTHER_SEASON).isPresent());
+		assertFalse(boards.club(OTHER_CLUB).isPresent());
+	}
+
+	@Test
+	void guessesAddToTheTotalsLoadedAtStartup() {
+		// two games in the season: one exact score, one correct result
+		scopedTotals.add(new Object[]{"SEASON", SEASON, 1L, 2L, 1L, 1L, JOINED});
+		scopedTotals.add(new Object[]{"TEAM", HOME, 1L, 1L, 1L, 0L, JOINED});
+		ScopedLeaderBoards boards = load();
+
+		scored(boards, 1, GameResult.CORRECT_RESULT);
+
+		ScoreBoard.Score season = boards.season(SEASON).orElseThrow().standing(1).orElseThrow().score();
+		assertEquals(GameResult.EXACT_SCORE.getPoints() + 2 * GameResult.CORRECT_RESULT.getPoints(), season.points());
+		assertEquals(3, season.games());
+		ScoreBoard.Score home = boards.club(HOME).orElseThrow().standing(1).orElseThrow().score();
+		assertEquals(GameResult.EXACT_SCORE.getPoints() + GameResult.CORRECT_RESULT.getPoints(), home.points());
+		ScoreBoard.Score away = boards.club(AWAY).orElseThrow().standing(1).orElseThrow().score();
+		assertEquals(GameResult.CORRECT_RESULT.getPoints(), away.points());
+	}
+
+	@Test
+	void tiedUsersShareTheirRankAndPageInJoinOrder() {
+		ScopedLeaderBoards boards = load(user(1, JOINED.plusDays(2)), user(2, JOINED), user(3, JOINED.plusDays(1)));
+
+		scored(boards, 1, GameResult.EXACT_SCORE);
+		scored(boards, 2, GameResult.EXACT_SCORE);
+		scored(boards, 3, GameResult.CORRECT_RESULT);
+
+		ScoreBoard season = boards.season(SEASON).orElseThrow();
+		assertEquals(1L, season.standing(1).orElseThrow().rank());
+		assertEquals(1L, season.standing(2).orElseThrow().rank());
+		assertEquals(3L, season.standing(3).orElseThrow().rank());
+
+		// positional on a page, the earlier joiner first
+		List<ScoreBoard.Standing> page = season.page(0, 10);
+		assertEquals(2L, page.get(0).score().userId());
+		assertEquals(1L, page.get(1).score().userId());
+		assertEquals(3L, page.get(2).score().userId());
+		assertEquals(2L, page.get(1).rank());
+		assertEquals(4L, season.rankForPoints(0));
+	}
+
+	private ScopedLeaderBoards load(Object[]... indexed) {
+		if (indexed.length == 0) {
+			users.add(user(1, JOINED));
+		}
+		users.addAll(List.of(indexed));
+		LeaderBoardIndex index = new LeaderBoardIndex(repository(UserRepository.class, "findLeaderBoardRows", users));
+		index.rebuild();
+		ScopedLeaderBoards boards = new ScopedLeaderBoards(
+				repository(UserGameRepository.class, "findScopedTotals", scopedTotals), index);
+		boards.afterSingletonsInstantiated();
+		return boards;
+	}
+
+	private static void scored(ScopedLeaderBoards boards, long userId, GameResult result) {
+		boards.onGuessScored(new GuessScoredEvent(userId, 100L, SEASON, HOME, AWAY, result, LocalDateTime.now()));
+	}
+
+	private static Object[] user(long userId, LocalDateTime joinedAt) {
+		return new Object[]{userId, "player" + userId, 0, 0, 0, joinedAt, null};
+	}
+
+	// answers the one query the test needs from it
+	private static <T> T repository(Class<T> type, String query, List<Object[]> rows) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+			if (method.getName().equals(query)) {
+				return rows;
+			}
+			throw new UnsupportedOperationException(method.getName());
+		}));
+	}
+}
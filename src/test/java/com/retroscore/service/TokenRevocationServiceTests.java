@@ -0,0 +1,80 @@
+package com.retroscore.service;
+
+import com.retroscore.IntegrationTest;
+import com.retroscore.entity.RevokedToken;
+import com.retroscore.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenRevocationServiceTests extends IntegrationTest {
+
+	@Autowired
+	TokenRevocationService tokenRevocationService;
+
+	@Autowired
+	RevokedTokenRepository revokedTokenRepository;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Test
+	void revocationTakesEffectOnCommit() {
+		String tokenId = UUID.randomUUID().toString();
+
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			tokenRevocationService.revoke(tokenId, inOneHour());
+			assertFalse(tokenRevocationService.isRevoked(tokenId));
+		});
+
+		assertTrue(tokenRevocationService.isRevoked(tokenId));
+	}
+
+	@Test
+	void rolledBackRevocationIsForgotten() {
+		String tokenId = UUID.randomUUID().toString();
+
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			tokenRevocationService.revoke(tokenId, inOneHour());
+			status.setRollbackOnly();
+		});
+
+		assertFalse(tokenRevocationService.isRevoked(tokenId));
+		assertFalse(revokedTokenRepository.existsById(tokenId));
+	}
+
+	@Test
+	void syncPicksUpRevocationsFromOtherInstances() {
+		String tokenId = UUID.randomUUID().toString();
+		// as another instance's logout would have written it
+		revokedTokenRepository.save(new RevokedToken(tokenId, LocalDateTime.now().plusHours(1), LocalDateTime.now()));
+		assertFalse(tokenRevocationService.isRevoked(tokenId));
+
+		tokenRevocationService.syncRevocations();
+
+		assertTrue(tokenRevocationService.isRevoked(tokenId));
+	}
+
+	@Test
+	void syncSkipsExpiredRevocations() {
+		String tokenId = UUID.randomUUID().toString();
+		revokedTokenRepository.save(new RevokedToken(tokenId, LocalDateTime.now().minusMinutes(1), LocalDateTime.now()));
+
+		tokenRevocationService.syncRevocations();
+
+		assertFalse(tokenRevocationService.isRevoked(tokenId));
+	}
+
+	private static Date inOneHour() {
+		return Date.from(new Date().toInstant().plus(1, ChronoUnit.HOURS));
+	}
+}
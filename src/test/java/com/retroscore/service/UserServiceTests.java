@@ -0,0 +1,95 @@
+package com.retroscore.service;
+
+import com.retroscore.IntegrationTest;
+import com.retroscore.TestFixtures;
+import com.retroscore.dto.UserSettingsDto;
+import com.retroscore.entity.Match;
+import com.retroscore.entity.Season;
+import com.retroscore.entity.User;
+import com.retroscore.enums.GameDifficulty;
+import com.retroscore.enums.GameResult;
+import com.retroscore.enums.TimerDurations;
+import com.retroscore.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class UserServiceTests extends IntegrationTest {
+
+	@Autowired
+	UserService userService;
+
+	@Autowired
+	GameService gameService;
+
+	@Autowired
+	UserRepository userRepository;
+
+	@Test
+	void savingAStaleUserKeepsTheGameCounters() {
+		Match match = fixtures.match(fixtures.season());
+		User stale = fixtures.user();
+
+		gameService.submitGuess(stale.getId(), TestFixtures.guess(match.getId(), 2, 1));
+		// still holds the counters from before the guess
+		stale.setShowHints(false);
+		userService.updateUser(stale);
+
+		User saved = userRepository.findById(stale.getId()).orElseThrow();
+		assertFalse(saved.isShowHints());
+		assertEquals(1, (int) saved.getGamesPlayed());
+		assertEquals(1, (int) saved.getGamesWon());
+		assertEquals(1, (int) saved.getExactScorePredictions());
+		assertEquals(GameResult.EXACT_SCORE.getPoints(), (int) saved.getTotalPoints());
+	}
+
+	@Test
+	void settingsUpdatesDuringGuessesLoseNoIncrement() throws Exception {
+		int guesses = 20;
+		Season season = fixtures.season();
+		List<Match> matches = new ArrayList<>();
+		for (int i = 0; i < guesses; i++) {
+			matches.add(fixtures.match(season));
+		}
+		Long userId = fixtures.user().getId();
+		UserSettingsDto settings = new UserSettingsDto(false, false, false, "ALL", false,
+				GameDifficulty.HARD, TimerDurations.THIRTY_SECONDS);
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> tasks = new ArrayList<>();
+		try {
+			for (Match match : matches) {
+				tasks.add(executor.submit(() -> {
+					start.await();
+					return gameService.submitGuess(userId, TestFixtures.guess(match.getId(), 0, 0));
+				}));
+				tasks.add(executor.submit(() -> {
+					start.await();
+					return userService.updateUserSettings(userId, settings);
+				}));
+			}
+			start.countDown();
+			for (Future<?> task : tasks) {
+				task.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		User saved = userRepository.findById(userId).orElseThrow();
+		assertEquals(guesses, (int) saved.getGamesPlayed());
+		assertEquals(guesses, (int) saved.getGamesLost());
+		assertEquals(GameDifficulty.HARD, saved.getGameDifficulty());
+	}
+}
@@ -0,0 +1,49 @@
+package com.retroscore.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AcceptEncodingTests {
+
+	@Test
+	void gzipListedWithoutOrAboveZeroQualityIsAccepted() {
+		assertTrue(AcceptEncoding.acceptsGzip("gzip"));
+		assertTrue(AcceptEncoding.acceptsGzip("gzip, deflate, br"));
+		assertTrue(AcceptEncoding.acceptsGzip("br;q=1.0, gzip;q=0.8, *;q=0.1"));
+		assertTrue(AcceptEncoding.acceptsGzip(" GZIP ; Q=0.5 "));
+		assertTrue(AcceptEncoding.acceptsGzip("x-gzip"));
+	}
+
+	@Test
+	void zeroQualityRefusesGzip() {
+		assertFalse(AcceptEncoding.acceptsGzip("gzip;q=0"));
+		assertFalse(AcceptEncoding.acceptsGzip("gzip;q=0.000, deflate"));
+		// an explicit refusal wins over the wildcard
+		assertFalse(AcceptEncoding.acceptsGzip("*, gzip;q=0"));
+	}
+
+	@Test
+	void wildcardCoversGzipUnlessRefused() {
+		assertTrue(AcceptEncoding.acceptsGzip("*"));
+		assertTrue(AcceptEncoding.acceptsGzip("br, *;q=0.5"));
+		assertFalse(AcceptEncoding.acceptsGzip("*;q=0"));
+	}
+
+	@Test
+	void codingsThatOnlyContainTheWordAreNotGzip() {
+		assertFalse(AcceptEncoding.acceptsGzip("notgzip"));
+		assertFalse(AcceptEncoding.acceptsGzip("gzip2, deflate"));
+		assertFalse(AcceptEncoding.acceptsGzip("identity;gzip=1"));
+	}
+
+	@Test
+	void missingEmptyOrMalformedHeaderGetsNoGzip() {
+		assertFalse(AcceptEncoding.acceptsGzip(null));
+		assertFalse(AcceptEncoding.acceptsGzip(""));
+		assertFalse(AcceptEncoding.acceptsGzip("identity"));
+		assertFalse(AcceptEncoding.acceptsGzip("gzip;q=high"));
+		assertFalse(AcceptEncoding.acceptsGzip("gzip;q=2"));
+	}
+}
@@ -0,0 +1,53 @@
+package com.retroscore.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTests {
+
+	@Test
+	void neverMissesAnAddedValue() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		String[] values = new String[10_000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = UUID.randomUUID().toString();
+			filter.add(values[i]);
+		}
+
+		for (String value : values) {
+			assertTrue(filter.mightContain(value), value);
+		}
+	}
+
+	@Test
+	void overfilledFilterStillNeverMisses() {
+		BloomFilter filter = new BloomFilter(10, 0.01);
+		for (int i = 0; i < 1_000; i++) {
+			filter.add("token-" + i);
+		}
+
+		for (int i = 0; i < 1_000; i++) {
+			assertTrue(filter.mightContain("token-" + i));
+		}
+	}
+
+	@Test
+	void falsePositivesStayNearTheConfiguredRate() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.add("revoked-" + i);
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < 100_000; i++) {
+			if (filter.mightContain("live-" + i)) {
+				falsePositives++;
+			}
+		}
+		// 1% expected, generous bound so the test is not flaky
+		assertTrue(falsePositives < 3_000, falsePositives + " false positives in 100000 lookups");
+	}
+}
@@ -0,0 +1,66 @@
+package com.retroscore.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchIdBitmapTests {
+
+	// ids of one container, every other low value so the array and bitmap forms differ
+	private static long id(int i) {
+		return 3L * 65_536 + 2L * i;
+	}
+
+	@Test
+	void fullArrayContainerKeepsEveryId() {
+		MatchIdBitmap bitmap = new MatchIdBitmap();
+		for (int i = 0; i < 4096; i++) {
+			bitmap.add(id(i));
+		}
+
+		assertEquals(4096, bitmap.cardinality());
+		for (int i = 0; i < 4096; i++) {
+			assertTrue(bitmap.contains(id(i)));
+			assertFalse(bitmap.contains(id(i) + 1));
+		}
+	}
+
+	@Test
+	void convertingToABitmapKeepsEveryId() {
+		MatchIdBitmap bitmap = new MatchIdBitmap();
+		for (int i = 0; i <= 4096; i++) {
+			bitmap.add(id(i));
+		}
+		// duplicates after the conversion do not count twice
+		bitmap.add(id(0));
+		bitmap.add(id(4096));
+
+		assertEquals(4097, bitmap.cardinality());
+		for (int i = 0; i <= 4096; i++) {
+			assertTrue(bitmap.contains(id(i)));
+			assertFalse(bitmap.contains(id(i) + 1));
+		}
+
+		bitmap.remove(id(10));
+		bitmap.remove(id(10));
+		bitmap.remove(id(10) + 1);
+		assertEquals(4096, bitmap.cardinality());
+		assertFalse(bitmap.contains(id(10)));
+	}
+
+	@Test
+	void containersAreKeptPerHighKey() {
+		MatchIdBitmap bitmap = new MatchIdBitmap();
+		long[] ids = {1, 65_535, 65_536, 5L * 65_536 + 7, 1L << 40};
+		for (long id : ids) {
+			bitmap.add(id);
+		}
+
+		assertEquals(ids.length, bitmap.cardinality());
+		assertArrayEquals(new long[]{65_536, 1}, bitmap.and(new long[]{65_536, 2, 1}));
+		assertArrayEquals(new long[]{2, 65_537}, bitmap.andNot(new long[]{2, 65_535, 65_537, 1L << 40}));
+	}
+}
@@ -0,0 +1,81 @@
+package com.retroscore.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderStatisticTreeTests {
+
+	@Test
+	void rankAndGetFollowDeletes() {
+		OrderStatisticTree<Integer> tree = new OrderStatisticTree<>(Comparator.naturalOrder());
+		for (int i = 0; i < 10; i++) {
+			tree.add(i * 10);
+		}
+
+		assertTrue(tree.remove(0));
+		assertTrue(tree.remove(50));
+		assertTrue(tree.remove(90));
+		assertFalse(tree.remove(50));
+
+		assertEquals(7, tree.size());
+		assertEquals(List.of(10, 20, 30, 40, 60, 70, 80), tree.range(0, 10));
+		assertEquals(0, tree.rank(10));
+		assertEquals(4, tree.rank(50));
+		assertEquals(4, tree.rank(60));
+		assertEquals(7, tree.rank(90));
+		assertEquals(60, (int) tree.get(4));
+		assertEquals(80, (int) tree.get(6));
+		assertThrows(IndexOutOfBoundsException.class, () -> tree.get(7));
+	}
+
+	@Test
+	void matchesSortedSetUnderRandomAddsAndDeletes() {
+		Random random = new Random(42);
+		OrderStatisticTree<Integer> tree = new OrderStatisticTree<>(Comparator.naturalOrder());
+		TreeSet<Integer> expected = new TreeSet<>();
+		for (int step = 0; step < 20_000; step++) {
+			int value = random.nextInt(2_000);
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(value), tree.remove(value));
+			} else {
+				assertEquals(expected.add(value), tree.add(value));
+			}
+		}
+
+		List<Integer> ordered = new ArrayList<>(expected);
+		assertEquals(ordered.size(), tree.size());
+		assertEquals(ordered, tree.range(0, ordered.size()));
+		for (int i = 0; i < ordered.size(); i++) {
+			assertEquals(ordered.get(i), tree.get(i));
+			assertEquals(i, tree.rank(ordered.get(i)));
+		}
+		for (int value = -1; value <= 2_000; value++) {
+			assertEquals(expected.headSet(value).size(), tree.rank(value));
+		}
+	}
+
+	@Test
+	void removingEverythingLeavesAnEmptyTree() {
+		OrderStatisticTree<Integer> tree = new OrderStatisticTree<>(Comparator.naturalOrder());
+		for (int i = 0; i < 100; i++) {
+			tree.add(i);
+		}
+		for (int i = 99; i >= 0; i--) {
+			assertTrue(tree.remove(i));
+		}
+
+		assertEquals(0, tree.size());
+		assertEquals(0, tree.rank(50));
+		assertEquals(List.of(), tree.range(0, 10));
+	}
+}
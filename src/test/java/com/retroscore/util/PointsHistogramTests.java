@@ -0,0 +1,70 @@
+package com.retroscore.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PointsHistogramTests {
+
+	@Test
+	void countAboveAtTheBounds() {
+		PointsHistogram histogram = new PointsHistogram();
+		histogram.add(0);
+		histogram.add(0);
+		histogram.add(5);
+		histogram.add(63);
+
+		assertEquals(4, histogram.countAbove(-1));
+		assertEquals(2, histogram.countAbove(0));
+		assertEquals(1, histogram.countAbove(5));
+		assertEquals(1, histogram.countAbove(62));
+		assertEquals(0, histogram.countAbove(63));
+		// past the highest total seen, nobody has more
+		assertEquals(0, histogram.countAbove(64));
+		assertEquals(0, histogram.countAbove(Integer.MAX_VALUE));
+	}
+
+	@Test
+	void growingKeepsThePrefixSums() {
+		PointsHistogram histogram = new PointsHistogram();
+		for (int points = 0; points < 64; points++) {
+			histogram.add(points);
+		}
+		// first total past the initial capacity
+		histogram.add(64);
+		histogram.add(1_000);
+
+		assertEquals(66, histogram.total());
+		assertEquals(66, histogram.countAbove(-1));
+		assertEquals(65, histogram.countAbove(0));
+		assertEquals(2, histogram.countAbove(63));
+		assertEquals(1, histogram.countAbove(64));
+		assertEquals(1, histogram.countAbove(999));
+		assertEquals(0, histogram.countAbove(1_000));
+		assertEquals(1, histogram.countWithPoints(1_000));
+		assertEquals(0, histogram.countWithPoints(1_001));
+	}
+
+	@Test
+	void moveAndRemoveUpdateCounts() {
+		PointsHistogram histogram = new PointsHistogram();
+		histogram.add(10);
+		histogram.add(20);
+		histogram.move(10, 30);
+
+		assertEquals(0, histogram.countWithPoints(10));
+		assertEquals(1, histogram.countAbove(20));
+
+		histogram.remove(30);
+		assertEquals(1, histogram.total());
+		assertEquals(0, histogram.countAbove(20));
+		assertEquals(1, histogram.countAbove(19));
+	}
+
+	@Test
+	void rejectsNegativePoints() {
+		PointsHistogram histogram = new PointsHistogram();
+		assertThrows(IllegalArgumentException.class, () -> histogram.add(-1));
+	}
+}